@@ -28,6 +28,19 @@ public class APP {
     public static void main(String[] args) {
         boolean running = true;
 
+        // Publish the ledger's metrics over JMX (e.g. for jconsole); the app works fine without them
+        try {
+            ledger.getMetrics().register("transactions.csv");
+        } catch (javax.management.JMException e) {
+            System.out.println("Warning: ledger metrics are not available over JMX (" + e.getMessage() + ")");
+        }
+
+        // "--server [port]" serves the ledger over HTTP instead of showing the menus
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : LedgerServer.DEFAULT_PORT);
+            return;
+        }
+
         // Application loop that keeps running until user chooses to exit
         while (running) {
             showHomeScreen(); // Display home menu
@@ -44,6 +57,12 @@ public class APP {
                 case "L":
                     showLedgerMenu();
                     break;
+                case "I":
+                    importStatement();
+                    break;
+                case "M":
+                    showMetrics();
+                    break;
                 case "X":
                     running = false;
                     System.out.println("Goodbye!");
@@ -52,6 +71,53 @@ public class APP {
                     System.out.println("Invalid option. Try again.");
             }
         } keyboard.close();
+
+        // Make sure every queued transaction reaches the file before exiting
+        if (!closeLedger()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Closes the ledger, which writes out every queued transaction.
+     * Returns false (after telling the user) if some of them may not have reached the ledger file.
+     */
+    private static boolean closeLedger() {
+        try {
+            ledger.close();
+            return true;
+        } catch (java.io.IOException e) {
+            System.out.println("Error: recent transactions may not have been saved to the ledger file ("
+                    + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Headless mode: serves the ledger on 127.0.0.1 (see LedgerServer) until the process is stopped.
+     * Ctrl+C stops the server and saves every queued transaction before exiting.
+     */
+    private static void runServer(int port) {
+        LedgerServer server;
+        try {
+            server = new LedgerServer(ledger, port);
+        } catch (java.io.IOException e) {
+            System.out.println("Error: could not start the server on port " + port + " (" + e.getMessage() + ")");
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (!closeLedger()) {
+                Runtime.getRuntime().halt(1); // exit() would wait for this hook to finish
+            }
+        }));
+        server.start();
+        System.out.println("Ledger server listening on http://127.0.0.1:" + server.getPort() + "/ (Ctrl+C to stop)");
+        try {
+            Thread.currentThread().join(); // The server's own threads do the work from here on
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -63,6 +129,8 @@ public class APP {
         System.out.println("D) Add Deposit");
         System.out.println("P) Make Payment (Debit)");
         System.out.println("L) Ledger");
+        System.out.println("I) Import Statement File");
+        System.out.println("M) Metrics");
         System.out.println("X) Exit");
         System.out.print("Select an option: ");
     }
@@ -122,6 +190,7 @@ public class APP {
             System.out.println("P) Previous Month");
             System.out.println("Y) Year-to-Date");
             System.out.println("V) Search by Vendor");
+            System.out.println("S) Summary (Balance & Totals)");
             System.out.println("B) Back to Ledger Menu");
 
             System.out.print("Select an option: ");
@@ -143,6 +212,9 @@ public class APP {
                 case "V":
                     searchByVendor();
                     break;
+                case "S":
+                    ledger.displaySummary();
+                    break;
                 case "B":
                     inReportsMenu = false;
                     break;
@@ -162,15 +234,24 @@ public class APP {
         System.out.println("Enter vendor: ");
         String vendor = keyboard.nextLine();
         System.out.println("Enter amount: ");
-        double amount = Double.parseDouble(keyboard.nextLine());
+        long cents = Money.parseCents(keyboard.nextLine()); // Exact cents, e.g. "12.34" or "$1,200"
+        if (cents == Money.INVALID) {
+            System.out.println("Invalid amount. The deposit was not added.");
+            return;
+        }
 
         // Capture current date and time (attributes)
         String date = java.time.LocalDate.now().toString();
         String time = java.time.LocalTime.now().withNano(0).toString(); // time only, no nanoseconds
 
         // Create a new transaction object and add it to the ledger
-        Transactions deposit = new Transactions(date, time, description, vendor, amount);
-        ledger.addTransactions(deposit);
+        Transactions deposit = Transactions.ofCents(date, time, description, vendor, cents);
+        try {
+            ledger.addTransactions(deposit);
+        } catch (java.io.IOException e) {
+            System.out.println("Error: the deposit could not be saved to the ledger file (" + e.getMessage() + ")");
+            return;
+        }
 
         System.out.println("Deposit added!");
     }
@@ -185,34 +266,77 @@ public class APP {
         System.out.println("Enter vendor: ");
         String vendor = keyboard.nextLine();
         System.out.println("Enter amount: ");
-        double amount = Double.parseDouble(keyboard.nextLine());
+        long cents = Money.parseCents(keyboard.nextLine());
+        if (cents == Money.INVALID) {
+            System.out.println("Invalid amount. The payment was not added.");
+            return;
+        }
 
         // Ensure the amount is negative to represent a payment/debit
-        amount = -Math.abs(amount); // negative absolute auto converts payments to a negative balance
+        cents = -Math.abs(cents); // negative absolute auto converts payments to a negative balance
 
         // Capture current date and time
         String date = java.time.LocalDate.now().toString();
         String time = java.time.LocalTime.now().withNano(0).toString();
 
         // Create a new transaction object and add it to the ledger
-        Transactions payment = new Transactions(date, time, description, vendor, amount);
-        ledger.addTransactions(payment);
+        Transactions payment = Transactions.ofCents(date, time, description, vendor, cents);
+        try {
+            ledger.addTransactions(payment);
+        } catch (java.io.IOException e) {
+            System.out.println("Error: the payment could not be saved to the ledger file (" + e.getMessage() + ")");
+            return;
+        }
 
         System.out.println("Payment successfully recorded!");
     }
 
+    /**
+     * Imports a bank statement or another ledger file (pipe-delimited or CSV) in bulk.
+     * Rows already in the ledger are skipped, so importing the same file twice is harmless.
+     */
+    private static void importStatement() {
+        System.out.println("Enter the path of the file to import: ");
+        java.nio.file.Path file = java.nio.file.Path.of(keyboard.nextLine().trim());
+        if (!java.nio.file.Files.isRegularFile(file)) {
+            System.out.println("File not found: " + file);
+            return;
+        }
+
+        // The importer reports after every batch; \r keeps the progress on one console line
+        BulkImporter.Progress result;
+        try {
+            result = new BulkImporter(ledger).importFile(file, progress -> System.out.print("\r" + progress));
+        } catch (java.io.IOException e) {
+            System.out.println("\nError: the import stopped (" + e.getMessage() + "). Rows saved so far are kept.");
+            return;
+        }
+        System.out.println();
+        for (TransactionLoader.MalformedLine bad : result.getMalformedLines()) {
+            System.out.println("  skipped " + bad);
+        }
+        System.out.println("Import complete!");
+    }
+
+    /**
+     * Prints a snapshot of the ledger's timings and counters since the app started.
+     */
+    private static void showMetrics() {
+        System.out.println("\n=== Metrics ===");
+        System.out.print(ledger.getMetrics().dump());
+    }
+
     /**
      * Allows the user to search transactions by vendor name.
      * Case-insensitive search that displays any matching entries.
      */
     private static void searchByVendor() {
         System.out.println("Enter vendor name to search: ");
-        String vendorName = keyboard.nextLine().toLowerCase();
+        String vendorName = keyboard.nextLine();
 
-        for (Transactions t : ledger.getTransactions()) {
-            if (t.getVendor().toLowerCase().contains(vendorName)) {
-                System.out.println(t);
-            }
+        // The ledger's vendor index does the case-insensitive matching
+        for (Transactions t : ledger.searchByVendor(vendorName)) {
+            System.out.println(t);
         }
     }
 
@@ -229,16 +353,17 @@ public class APP {
         System.out.println("Enter amount (exact) or leave blank: ");
         String amountStr = keyboard.nextLine().trim();
 
-        // Attempt to parse the amount only if the user provided something for us
-        Double amount = null;
+        // Parse the amount only if the user provided something for us; it is matched to the exact cent
+        Long amountCents = null;
         if (!amountStr.isEmpty()) {
-            try {
-                amount = Double.parseDouble(amountStr); // If valid number, we'll parse and use it in the filter
-            } catch (NumberFormatException e) {
+            long cents = Money.parseCents(amountStr);
+            if (cents == Money.INVALID) {
                 System.out.println("Invalid amount. Ignoring amount filter."); // Ignores bad input
+            } else {
+                amountCents = cents;
             }
         }
         // Delegate to the Ledger class to actually search and print matching results
-        ledger.customSearch(startDate, endDate, description, vendor, amount);
+        ledger.customSearchCents(startDate, endDate, description, vendor, amountCents);
     }
 }
@@ -0,0 +1,341 @@
+package com.pluralsight;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Compact binary form of a ledger, an alternative to the pipe-delimited CSV text.
+//
+// Layout (all ints big-endian):
+//   header:  "LDGB" | version (int) | row count (long)
+//   blocks:  row count (int) | min epoch day (int) | max epoch day (int) | payload length (int) | CRC32 (int)
+//            payload = vendor dictionary, description dictionary, then the records
+//            CRC32 covers the four header fields before it and the payload
+//   record:  length (1 byte) | day - block min day | second of day | amount in cents (zig-zag) | vendor ref | description ref
+//            (every record field is a variable-length int, so a typical record is about 10 bytes)
+//
+// Each block carries its own min/max date, so a date-bounded read skips whole blocks without decoding them,
+// and its own small dictionaries, so every vendor/description string is stored once per block, not once per row.
+public class BinaryLedgerFile {
+
+    private static final byte[] MAGIC = {'L', 'D', 'G', 'B'};
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int BLOCK_HEADER_BYTES = 20;
+    private static final int CHECKED_HEADER_BYTES = 16; // The block header fields the CRC covers
+    private static final int ROWS_PER_BLOCK = 4096;
+
+    private BinaryLedgerFile() {
+    }
+
+    // === DETECT ===
+    // True if the file starts with the binary ledger header
+    public static boolean isBinaryLedger(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            channel.read(magic, 0);
+            return Arrays.equals(magic.array(), MAGIC);
+        }
+    }
+
+    // === WRITE ===
+    // Writes every row of the store, in row order
+    public static void write(TransactionStore store, Path file) throws IOException {
+        write(store, 0, store.size(), file);
+    }
+
+    // Writes rows [fromRow, toRow) of the store
+    public static void write(TransactionStore store, int fromRow, int toRow, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file), 256 * 1024))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(toRow - fromRow);
+
+            ByteSink records = new ByteSink();
+            ByteSink payload = new ByteSink();
+            ByteSink vendorText = new ByteSink();
+            ByteSink descriptionText = new ByteSink();
+            ByteSink record = new ByteSink();
+            ByteBuffer blockHeader = ByteBuffer.allocate(CHECKED_HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            for (int start = fromRow; start < toRow; start += ROWS_PER_BLOCK) {
+                int end = Math.min(toRow, start + ROWS_PER_BLOCK);
+                records.reset();
+                payload.reset();
+                vendorText.reset();
+                descriptionText.reset();
+
+                int minDay = Integer.MAX_VALUE;
+                int maxDay = Integer.MIN_VALUE;
+                for (int row = start; row < end; row++) {
+                    minDay = Math.min(minDay, store.getEpochDay(row));
+                    maxDay = Math.max(maxDay, store.getEpochDay(row));
+                }
+
+                // Block-local dictionaries: store id -> position in this block
+                Map<Integer, Integer> vendorRefs = new HashMap<>();
+                Map<Integer, Integer> descriptionRefs = new HashMap<>();
+                for (int row = start; row < end; row++) {
+                    int vendorRef = reference(vendorRefs, store.getVendorId(row), store.getVendor(row), vendorText);
+                    int descriptionRef = reference(descriptionRefs, store.getDescriptionId(row),
+                            store.getDescription(row), descriptionText);
+                    record.reset();
+                    record.writeVarLong(store.getEpochDay(row) - (long) minDay);
+                    record.writeVarLong(store.getSecondOfDay(row));
+                    record.writeVarLong(zigZag(store.getAmountCents(row)));
+                    record.writeVarLong(vendorRef);
+                    record.writeVarLong(descriptionRef);
+                    records.writeByte(record.size()); // Five small varints, never more than 22 bytes
+                    records.write(record);
+                }
+                payload.writeVarLong(vendorRefs.size());
+                payload.write(vendorText);
+                payload.writeVarLong(descriptionRefs.size());
+                payload.write(descriptionText);
+                payload.write(records);
+
+                blockHeader.clear();
+                blockHeader.putInt(end - start).putInt(minDay).putInt(maxDay).putInt(payload.size());
+                crc.reset();
+                crc.update(blockHeader.array(), 0, CHECKED_HEADER_BYTES);
+                crc.update(payload.bytes, 0, payload.size());
+                out.write(blockHeader.array(), 0, CHECKED_HEADER_BYTES);
+                out.writeInt((int) crc.getValue());
+                out.write(payload.bytes, 0, payload.size());
+            }
+        }
+    }
+
+    // Returns the block-local reference for a dictionary id, writing its text the first time it is used
+    private static int reference(Map<Integer, Integer> refs, int id, String text, ByteSink textOut) {
+        Integer ref = refs.get(id);
+        if (ref == null) {
+            ref = refs.size();
+            refs.put(id, ref);
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            textOut.writeVarLong(utf8.length);
+            textOut.write(utf8, 0, utf8.length);
+        }
+        return ref;
+    }
+
+    // === READ ===
+    // Reads every row into a new store
+    public static TransactionStore read(Path file) throws IOException {
+        return read(file, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    // Reads only rows dated between fromDay and toDay (epoch days, both inclusive).
+    // Blocks whose min/max dates fall outside the range are skipped without being decoded.
+    // Throws IOException if the file is not a binary ledger, a block header is out of range, a block fails
+    // its checksum or can't be decoded, or the blocks don't add up to the row count in the file header.
+    public static TransactionStore read(Path file, int fromDay, int toDay) throws IOException {
+        TransactionStore store = new TransactionStore();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            if (header.remaining() < HEADER_BYTES) {
+                throw new IOException(file + " is not a binary ledger file");
+            }
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a binary ledger file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported version " + version);
+            }
+            long expectedRows = header.getLong();
+            if (expectedRows < 0) {
+                throw new IOException(file + " has a negative row count");
+            }
+            long totalRows = 0;
+
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+            long position = HEADER_BYTES;
+            int blockNumber = 0;
+            CRC32 crc = new CRC32();
+            while (position < size) {
+                blockHeader.clear();
+                channel.read(blockHeader, position);
+                blockHeader.flip();
+                if (blockHeader.remaining() < BLOCK_HEADER_BYTES) {
+                    throw new IOException("Truncated block header at block " + blockNumber + " of " + file);
+                }
+                int rows = blockHeader.getInt();
+                int minDay = blockHeader.getInt();
+                int maxDay = blockHeader.getInt();
+                int payloadLength = blockHeader.getInt();
+                int expectedCrc = blockHeader.getInt();
+                long payloadStart = position + BLOCK_HEADER_BYTES;
+                // Checked before anything is skipped or allocated, so a damaged header can't stall the loop
+                // (a negative length) or turn into an array exception while decoding
+                if (payloadLength < 0 || rows < 0 || rows > ROWS_PER_BLOCK || rows > payloadLength
+                        || (rows > 0 && minDay > maxDay)) {
+                    throw new IOException("Corrupt header in block " + blockNumber + " of " + file);
+                }
+                if (payloadStart + payloadLength > size) {
+                    throw new IOException("Truncated block " + blockNumber + " of " + file);
+                }
+                position = payloadStart + payloadLength;
+                totalRows += rows;
+
+                if (maxDay < fromDay || minDay > toDay) {
+                    blockNumber++;
+                    continue; // Nothing in this block can match
+                }
+                byte[] bytes = new byte[payloadLength];
+                ByteBuffer payload = ByteBuffer.wrap(bytes);
+                while (payload.hasRemaining() && channel.read(payload, payloadStart + payload.position()) > 0) {
+                    // Keep reading until the whole payload is in
+                }
+                crc.reset();
+                crc.update(blockHeader.array(), 0, CHECKED_HEADER_BYTES);
+                crc.update(bytes, 0, bytes.length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Checksum mismatch in block " + blockNumber + " of " + file);
+                }
+                try {
+                    decodeBlock(bytes, rows, minDay, fromDay, toDay, store);
+                } catch (RuntimeException e) {
+                    // The checksum matched, but the block doesn't decode (e.g. written by a broken writer)
+                    throw new IOException("Corrupt block " + blockNumber + " of " + file, e);
+                }
+                blockNumber++;
+            }
+            if (totalRows != expectedRows) {
+                throw new IOException(file + " should hold " + expectedRows + " rows but its blocks hold "
+                        + totalRows);
+            }
+        }
+        return store;
+    }
+
+    private static void decodeBlock(byte[] bytes, int rows, int minDay, int fromDay, int toDay,
+                                    TransactionStore store) {
+        ByteSource in = new ByteSource(bytes);
+        String[] vendors = readDictionary(in);
+        String[] descriptions = readDictionary(in);
+        for (int i = 0; i < rows; i++) {
+            int length = in.readByte() & 0xFF;
+            int next = in.position + length;
+            int epochDay = (int) (minDay + in.readVarLong());
+            if (epochDay >= fromDay && epochDay <= toDay) {
+                int secondOfDay = (int) in.readVarLong();
+                long cents = unZigZag(in.readVarLong());
+                String vendor = vendors[(int) in.readVarLong()];
+                String description = descriptions[(int) in.readVarLong()];
+                store.append(epochDay, secondOfDay, description, vendor, cents);
+            }
+            in.position = next; // The length prefix lets us skip the rest of a record we don't need
+        }
+    }
+
+    private static String[] readDictionary(ByteSource in) {
+        long count = in.readVarLong();
+        if (count < 0 || count > in.bytes.length - in.position) {
+            throw new IllegalStateException("Dictionary size " + count + " is larger than the block"); // Each value takes a byte or more
+        }
+        String[] values = new String[(int) count];
+        for (int i = 0; i < values.length; i++) {
+            int length = (int) in.readVarLong();
+            values[i] = new String(in.bytes, in.position, length, StandardCharsets.UTF_8);
+            in.position += length;
+        }
+        return values;
+    }
+
+    // === VARIABLE-LENGTH INTEGERS ===
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63); // Small negative numbers become small positive ones
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Growable byte buffer for building a block in memory
+    private static class ByteSink {
+        byte[] bytes = new byte[4096];
+        int size = 0;
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] data, int offset, int length) {
+            ensure(length);
+            System.arraycopy(data, offset, bytes, size, length);
+            size += length;
+        }
+
+        void write(ByteSink other) {
+            write(other.bytes, 0, other.size);
+        }
+
+        // 7 bits per byte, high bit set on every byte except the last
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+
+    private static class ByteSource {
+        final byte[] bytes;
+        int position = 0;
+
+        ByteSource(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte readByte() {
+            return bytes[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Imports large statement files into a Ledger through a three-stage pipeline:
+//
+//   reader --(bounded chunk queue)--> parsers (one per core) --> committer (the calling thread)
+//
+// The reader cuts the file into newline-aligned chunks. At most `maxChunksInFlight` chunks exist at once
+// (read but not yet committed), so when parsing or committing falls behind the reader waits instead of
+// filling the heap (back-pressure). Parsers turn chunks into column stores in parallel. The committer takes
+// the parsed chunks back in file order, skips rows the ledger already has (same date, time, vendor and
+// amount, see TransactionKeySet) and hands the rest to the ledger in batches, each made durable with a
+// single write-ahead log sync (see Ledger.addAllAsync).
+//
+// Reads the ledger's own pipe-delimited format, and comma-separated files with the same five columns
+// (date, time, description, vendor, amount) and optional quoting. A header line is skipped.
+public class BulkImporter {
+
+    // Malformed lines beyond this many are counted but not kept
+    private static final int MAX_REPORTED_MALFORMED = 1_000;
+
+    // === PROGRESS ===
+    // Live counters for a running import; safe to read from any thread while it runs
+    public static class Progress {
+        private final long totalBytes;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong rowsImported = new AtomicLong();
+        private final AtomicLong duplicates = new AtomicLong();
+        private final AtomicLong malformed = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final List<TransactionLoader.MalformedLine> malformedLines =
+                Collections.synchronizedList(new ArrayList<>());
+        private volatile int chunksQueued = 0;
+        private volatile long finishedNanos = 0;
+
+        Progress(long totalBytes) {
+            this.totalBytes = totalBytes;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getBytesRead() {
+            return bytesRead.get();
+        }
+
+        public long getLinesRead() {
+            return linesRead.get();
+        }
+
+        // Rows added to the ledger and durable on disk
+        public long getRowsImported() {
+            return rowsImported.get();
+        }
+
+        // Rows skipped because the ledger already had them before the import started
+        public long getDuplicates() {
+            return duplicates.get();
+        }
+
+        public long getMalformed() {
+            return malformed.get();
+        }
+
+        // The first MAX_REPORTED_MALFORMED malformed lines, numbered as in the file
+        public List<TransactionLoader.MalformedLine> getMalformedLines() {
+            return malformedLines;
+        }
+
+        public long getBatches() {
+            return batches.get();
+        }
+
+        // Chunks read but not yet picked up by a parser (a full queue means parsing is the bottleneck)
+        public int getChunksQueued() {
+            return chunksQueued;
+        }
+
+        public boolean isFinished() {
+            return finishedNanos != 0;
+        }
+
+        public long getElapsedMillis() {
+            long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            return (end - startNanos) / 1_000_000;
+        }
+
+        public long getRowsPerSecond() {
+            long millis = Math.max(1, getElapsedMillis());
+            return rowsImported.get() * 1000 / millis;
+        }
+
+        @Override
+        public String toString() {
+            long percent = totalBytes > 0 ? bytesRead.get() * 100 / totalBytes : 100;
+            return String.format("%,d rows imported, %,d duplicates, %,d malformed | %d%% read | %,d rows/s | %.1f s",
+                    rowsImported.get(), duplicates.get(), malformed.get(), percent, getRowsPerSecond(),
+                    getElapsedMillis() / 1000.0);
+        }
+    }
+
+    // A piece of the file ending just after a '\n' (or at end of file)
+    private static class Chunk {
+        final long sequence;
+        final byte[] data;
+        final int length;
+
+        Chunk(long sequence, byte[] data, int length) {
+            this.sequence = sequence;
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    // A parsed chunk on its way to the committer; `end` marks the position after the last chunk
+    private static class Parsed {
+        final long sequence;
+        final TransactionLoader.LoadResult result;
+        final Exception failure;
+        final boolean end;
+
+        Parsed(long sequence, TransactionLoader.LoadResult result, Exception failure, boolean end) {
+            this.sequence = sequence;
+            this.result = result;
+            this.failure = failure;
+            this.end = end;
+        }
+    }
+
+    // Tells a parser thread to exit
+    private static final Chunk NO_MORE_CHUNKS = new Chunk(-1, new byte[0], 0);
+
+    // === INSTANCE VARIABLES ===
+    private final Ledger ledger;
+    private final int parserThreads;
+    private final int chunkBytes;
+    private final int maxChunksInFlight;
+    private final int batchRows;
+
+    // === CONSTRUCTOR ===
+    // One parser per core, 4 MB chunks, at most 4 chunks per parser in flight, 50,000 rows per commit
+    public BulkImporter(Ledger ledger) {
+        this(ledger, Runtime.getRuntime().availableProcessors(), 4 << 20,
+                4 * Runtime.getRuntime().availableProcessors(), 50_000);
+    }
+
+    public BulkImporter(Ledger ledger, int parserThreads, int chunkBytes, int maxChunksInFlight, int batchRows) {
+        if (parserThreads < 1 || chunkBytes < 1 || maxChunksInFlight < 1 || batchRows < 1) {
+            throw new IllegalArgumentException("Importer settings must all be at least 1");
+        }
+        this.ledger = ledger;
+        this.parserThreads = parserThreads;
+        this.chunkBytes = chunkBytes;
+        this.maxChunksInFlight = maxChunksInFlight;
+        this.batchRows = batchRows;
+    }
+
+    // === IMPORT ===
+    // Imports the file and returns the final counters once every imported row is durable.
+    // Throws IOException if the file can't be read or the ledger can't save a batch; batches committed
+    // before the failure stay in the ledger, so re-running the import only adds what is missing.
+    public Progress importFile(Path file) throws IOException {
+        return importFile(file, progress -> { });
+    }
+
+    // Same, calling the listener (on the calling thread) after every committed batch and once at the end
+    public Progress importFile(Path file, Consumer<Progress> listener) throws IOException {
+        Progress progress = new Progress(Files.size(file));
+        byte separator = detectSeparator(file);
+
+        // Seeded before the pipeline starts, so the file is checked against everything already in the ledger
+        TransactionKeySet keys = new TransactionKeySet();
+        keys.addAll(ledger.getStore());
+
+        Semaphore inFlight = new Semaphore(maxChunksInFlight);
+        ArrayBlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(maxChunksInFlight + parserThreads);
+        LinkedBlockingQueue<Parsed> parsed = new LinkedBlockingQueue<>(); // Bounded by inFlight
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> readChunks(file, progress, inFlight, chunks, parsed), "ledger-import-reader"));
+        for (int i = 0; i < parserThreads; i++) {
+            threads.add(new Thread(() -> parseChunks(separator, chunks, parsed), "ledger-import-parser-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try {
+            commitChunks(progress, keys, inFlight, chunks, parsed, listener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import of " + file + " was interrupted", e);
+        } finally {
+            for (Thread thread : threads) {
+                thread.interrupt(); // Only matters after a failure; otherwise they have already exited
+            }
+        }
+        progress.finishedNanos = System.nanoTime();
+        listener.accept(progress);
+        return progress;
+    }
+
+    // === READER STAGE ===
+    // Fills chunks of about chunkBytes, carrying the unfinished last line over to the next chunk.
+    // Waits for a permit before each chunk, which is what holds the reader back when the rest is busy.
+    private void readChunks(Path file, Progress progress, Semaphore inFlight, ArrayBlockingQueue<Chunk> chunks,
+                            LinkedBlockingQueue<Parsed> parsed) {
+        long sequence = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] carry = new byte[0];
+            int carryLength = 0;
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                inFlight.acquire();
+                byte[] data = Arrays.copyOf(carry, Math.max(chunkBytes, carryLength * 2));
+                int length = carryLength;
+                while (length < data.length) {
+                    int n = in.read(data, length, data.length - length);
+                    if (n < 0) {
+                        endOfFile = true;
+                        break;
+                    }
+                    length += n;
+                }
+                progress.bytesRead.addAndGet(length - carryLength);
+
+                int end = endOfFile ? length : lastNewline(data, length) + 1;
+                if (end == 0) {
+                    inFlight.release();
+                    if (!endOfFile) {
+                        carry = data; // A line longer than the whole chunk: read on until it ends
+                        carryLength = length;
+                    }
+                    continue;
+                }
+                carry = Arrays.copyOfRange(data, end, length);
+                carryLength = length - end;
+                chunks.put(new Chunk(sequence++, data, end));
+                progress.chunksQueued = chunks.size();
+            }
+            parsed.put(new Parsed(sequence, null, null, true));
+        } catch (IOException | RuntimeException e) {
+            parsed.add(new Parsed(sequence, null, e, false));
+        } catch (InterruptedException e) {
+            return; // The import was abandoned
+        }
+        for (int i = 0; i < parserThreads; i++) {
+            chunks.add(NO_MORE_CHUNKS); // Room is guaranteed: the queue is parserThreads bigger than inFlight
+        }
+    }
+
+    private static int lastNewline(byte[] data, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (data[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // === PARSER STAGE ===
+    private static void parseChunks(byte separator, ArrayBlockingQueue<Chunk> chunks,
+                                    LinkedBlockingQueue<Parsed> parsed) {
+        try {
+            while (true) {
+                Chunk chunk = chunks.take();
+                if (chunk == NO_MORE_CHUNKS) {
+                    return;
+                }
+                try {
+                    parsed.add(new Parsed(chunk.sequence,
+                            TransactionLoader.parse(ByteBuffer.wrap(chunk.data, 0, chunk.length), separator),
+                            null, false));
+                } catch (RuntimeException e) {
+                    parsed.add(new Parsed(chunk.sequence, null, e, false));
+                }
+            }
+        } catch (InterruptedException e) {
+            // The import was abandoned
+        }
+    }
+
+    // === COMMITTER STAGE ===
+    // Puts the parsed chunks back in file order, filters out duplicates, and commits full batches.
+    // The next batch is built while the previous one is being synced; only one is in the ledger's queue
+    // at a time, so a slow disk holds back the whole pipeline instead of piling up pending rows.
+    private void commitChunks(Progress progress, TransactionKeySet keys, Semaphore inFlight,
+                              ArrayBlockingQueue<Chunk> chunks, LinkedBlockingQueue<Parsed> parsed,
+                              Consumer<Progress> listener) throws IOException, InterruptedException {
+        TreeMap<Long, Parsed> waiting = new TreeMap<>(); // Parsed out of order, held until their turn
+        long next = 0;
+        long linesBefore = 0;
+        TransactionStore batch = new TransactionStore();
+        CompletableFuture<Void> committing = CompletableFuture.completedFuture(null);
+
+        while (true) {
+            Parsed p = parsed.take();
+            if (p.failure != null) {
+                throw p.failure instanceof IOException ? (IOException) p.failure
+                        : new IOException("Import failed: " + p.failure, p.failure);
+            }
+            waiting.put(p.sequence, p);
+            while ((p = waiting.remove(next)) != null) {
+                if (p.end) {
+                    awaitCommit(committing);
+                    if (batch.size() > 0) {
+                        awaitCommit(commit(batch, progress));
+                    }
+                    return;
+                }
+
+                TransactionStore rows = p.result.getStore();
+                for (int row = 0; row < rows.size(); row++) {
+                    // Only rows the ledger had before the import count as duplicates: a statement may list
+                    // the same purchase twice on one day (often with no time), and both rows are kept
+                    if (!keys.contains(rows.getEpochDay(row), rows.getSecondOfDay(row), rows.getVendor(row),
+                            rows.getAmountCents(row))) {
+                        batch.append(rows.getEpochDay(row), rows.getSecondOfDay(row), rows.getDescription(row),
+                                rows.getVendor(row), rows.getAmountCents(row));
+                    } else {
+                        progress.duplicates.incrementAndGet();
+                    }
+                }
+                for (TransactionLoader.MalformedLine bad : p.result.getMalformedLines()) {
+                    if (next == 0 && bad.getLineNumber() == 1) {
+                        continue; // A header line such as "date,time,description,vendor,amount"
+                    }
+                    progress.malformed.incrementAndGet();
+                    if (progress.malformedLines.size() < MAX_REPORTED_MALFORMED) {
+                        progress.malformedLines.add(new TransactionLoader.MalformedLine(
+                                linesBefore + bad.getLineNumber(), bad.getText(), bad.getReason()));
+                    }
+                }
+                linesBefore += p.result.getLineCount();
+                progress.linesRead.set(linesBefore);
+                progress.chunksQueued = chunks.size();
+                inFlight.release();
+                next++;
+
+                if (batch.size() >= batchRows) {
+                    awaitCommit(committing);
+                    listener.accept(progress);
+                    committing = commit(batch, progress);
+                    batch = new TransactionStore(); // The ledger keeps the old one
+                }
+            }
+        }
+    }
+
+    // Hands one batch to the ledger; the counters move once it is durable
+    private CompletableFuture<Void> commit(TransactionStore batch, Progress progress) {
+        int rows = batch.size();
+        return ledger.addAllAsync(batch).thenRun(() -> {
+            progress.rowsImported.addAndGet(rows);
+            progress.batches.incrementAndGet();
+        });
+    }
+
+    private static void awaitCommit(CompletableFuture<Void> commit) throws IOException {
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // === FORMAT DETECTION ===
+    // The ledger's own format if the first line has a '|', otherwise comma-separated
+    private static byte detectSeparator(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] start = in.readNBytes(64 * 1024);
+            for (byte b : start) {
+                if (b == '\n') {
+                    break;
+                }
+                if (b == '|') {
+                    return '|';
+                }
+            }
+            return ',';
+        }
+    }
+}
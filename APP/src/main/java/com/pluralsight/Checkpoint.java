@@ -0,0 +1,98 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// Records how far the CSV file is known to be complete: the last log sequence number copied into it,
+// and the CSV length right after that copy.
+//
+// Layout: "LDGC" | version (int) | last sequence (long) | CSV length (long) | CRC32 of the preceding bytes (int)
+//
+// Written to a temporary file, synced, then renamed over the old one, so a crash leaves either the old
+// checkpoint or the new one, never half of each.
+public class Checkpoint {
+
+    private static final byte[] MAGIC = {'L', 'D', 'G', 'C'};
+    private static final int VERSION = 1;
+    private static final int BYTES = 28;
+
+    private final long lastSequence;
+    private final long csvLength;
+
+    public Checkpoint(long lastSequence, long csvLength) {
+        this.lastSequence = lastSequence;
+        this.csvLength = csvLength;
+    }
+
+    // The checkpoint file that belongs to a ledger file
+    public static Path pathFor(Path ledgerFile) {
+        return ledgerFile.resolveSibling(ledgerFile.getFileName() + ".checkpoint");
+    }
+
+    // === GETTERS ===
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public long getCsvLength() {
+        return csvLength;
+    }
+
+    // === READ ===
+    // Returns null if there is no checkpoint yet; throws IOException if the file is damaged
+    public static Checkpoint read(Path file) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (bytes.length != BYTES || !Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            throw new IOException(file + " is not a ledger checkpoint");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, BYTES - Integer.BYTES);
+        if ((int) crc.getValue() != in.getInt(BYTES - Integer.BYTES)) {
+            throw new IOException("Checksum mismatch in " + file);
+        }
+        int version = in.getInt(MAGIC.length);
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        return new Checkpoint(in.getLong(8), in.getLong(16));
+    }
+
+    // === WRITE ===
+    public void write(Path file) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(BYTES);
+        out.put(MAGIC).putInt(VERSION).putLong(lastSequence).putLong(csvLength);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putInt((int) crc.getValue()).flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String toString() {
+        return "checkpoint at sequence " + lastSequence + ", CSV length " + csvLength;
+    }
+}
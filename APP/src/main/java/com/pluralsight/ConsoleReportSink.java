@@ -0,0 +1,27 @@
+package com.pluralsight;
+
+// Writes report lines to System.out in large chunks instead of one println (and one flush) per row
+public class ConsoleReportSink implements ReportSink {
+
+    private static final int CHUNK_CHARS = 64 * 1024;
+
+    private final StringBuilder buffer = new StringBuilder(CHUNK_CHARS + 256);
+
+    @Override
+    public void writeLine(CharSequence line) {
+        buffer.append(line).append(System.lineSeparator());
+        if (buffer.length() >= CHUNK_CHARS) {
+            flush();
+        }
+    }
+
+    // Looks up System.out on every flush, so a redirected console is honoured
+    @Override
+    public void flush() {
+        if (buffer.length() > 0) {
+            System.out.print(buffer);
+            buffer.setLength(0);
+        }
+        System.out.flush();
+    }
+}
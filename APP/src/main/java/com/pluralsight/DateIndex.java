@@ -0,0 +1,238 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Keeps the store's row numbers sorted by date so a date range can be found by binary search.
+// Rows normally arrive in date order, so an append is usually just added to the end;
+// back-dated ones wait in a small sorted buffer and are merged in batches.
+public class DateIndex {
+
+    // Below this many new rows, addAll() inserts them one by one instead of merging
+    private static final int SMALL_BATCH = 64;
+
+    private int size = 0;
+    private int[] days = new int[1024]; // Epoch day of each entry, ascending
+    private int[] rows = new int[1024]; // Row number of each entry (ascending within the same day)
+
+    // Back-dated rows not merged into the arrays above yet, as (day, row) packed into one long, sorted.
+    // Inserting here only shifts this short buffer; once it fills up it is merged in with one pass.
+    private int pendingSize = 0;
+    private long[] pending = new long[SMALL_BATCH];
+
+    // === BUILD ===
+    // Indexes every row already in the store
+    public static DateIndex build(TransactionStore store) {
+        DateIndex index = new DateIndex();
+        int n = store.size();
+        index.days = new int[Math.max(n, 1024)];
+        index.rows = new int[Math.max(n, 1024)];
+
+        boolean inOrder = true;
+        for (int row = 1; row < n && inOrder; row++) {
+            inOrder = store.getEpochDay(row - 1) <= store.getEpochDay(row);
+        }
+        if (inOrder) {
+            for (int row = 0; row < n; row++) {
+                index.days[row] = store.getEpochDay(row);
+                index.rows[row] = row;
+            }
+        } else {
+            // Sort (day, row) pairs packed into one long, which keeps rows of the same day in file order
+            long[] keys = new long[n];
+            for (int row = 0; row < n; row++) {
+                keys[row] = ((long) store.getEpochDay(row) << 32) | row;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < n; i++) {
+                index.days[i] = (int) (keys[i] >> 32);
+                index.rows[i] = (int) keys[i];
+            }
+        }
+        index.size = n;
+        return index;
+    }
+
+    // === ADD ===
+    // Records a newly appended row; rows must be added in row order
+    public void add(int row, int epochDay) {
+        if (size == 0 || days[size - 1] <= epochDay) { // The usual case: goes on the end
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            days[size] = epochDay;
+            rows[size++] = row;
+            return;
+        }
+        // Back-dated: into the pending buffer. The new key is after every pending key of the same day
+        // (its row number is the highest yet), so the insert point is after all of those.
+        long key = ((long) epochDay << 32) | row;
+        int at = pendingLowerBound(epochDay + 1);
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        System.arraycopy(pending, at, pending, at + 1, pendingSize - at);
+        pending[at] = key;
+        pendingSize++;
+
+        // A merge pass copies the whole index, so let the buffer grow with it (about sqrt(size) entries,
+        // which balances the cost of the merges against the cost of inserting into the buffer)
+        if (pendingSize >= Math.max(SMALL_BATCH, (int) Math.sqrt(size))) {
+            merge(Arrays.copyOf(pending, pendingSize), pendingSize);
+            pendingSize = 0;
+        }
+    }
+
+    // === ADD MANY ===
+    // Records the store's rows from `fromRow` on. Same result as add() for each row, but back-dated rows
+    // cost one sort and one merge pass instead of going through the pending buffer one at a time.
+    public void addAll(TransactionStore store, int fromRow) {
+        int n = store.size() - fromRow;
+        if (n < SMALL_BATCH) { // e.g. one request's rows from LedgerServer; a merge would copy the whole index
+            for (int row = fromRow; row < store.size(); row++) {
+                add(row, store.getEpochDay(row));
+            }
+            return;
+        }
+        // Any pending rows are sorted and merged along with the new ones
+        long[] keys = new long[n + pendingSize];
+        System.arraycopy(pending, 0, keys, n, pendingSize);
+        boolean inOrder = pendingSize == 0 && (size == 0 || store.getEpochDay(fromRow) >= days[size - 1]);
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) store.getEpochDay(fromRow + i) << 32) | (fromRow + i);
+            inOrder &= i == 0 || keys[i - 1] <= keys[i];
+        }
+        if (inOrder) { // Nothing back-dated: the new rows go on the end as they are
+            ensureCapacity(size + n);
+            for (int i = 0; i < n; i++) {
+                days[size] = (int) (keys[i] >> 32);
+                rows[size++] = (int) keys[i];
+            }
+            return;
+        }
+        Arrays.sort(keys);
+        merge(keys, keys.length);
+        pendingSize = 0;
+    }
+
+    // Merges n sorted (day, row) keys into the entries. Works back from the end of the arrays,
+    // so it needs no second copy of the index.
+    private void merge(long[] keys, int n) {
+        ensureCapacity(size + n);
+        int i = size - 1;
+        int j = n - 1;
+        int k = size + n - 1;
+        while (j >= 0) {
+            if (i >= 0 && (((long) days[i] << 32) | rows[i]) > keys[j]) {
+                days[k] = days[i];
+                rows[k--] = rows[i--];
+            } else {
+                days[k] = (int) (keys[j] >> 32);
+                rows[k--] = (int) keys[j--];
+            }
+        }
+        size += n;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > days.length) {
+            days = Arrays.copyOf(days, Math.max(capacity, days.length * 2));
+            rows = Arrays.copyOf(rows, days.length);
+        }
+    }
+
+    // === SNAPSHOT ===
+    // Writes the pending rows merged in, without touching this index (queries may be reading it)
+    void writeSnapshot(LedgerSnapshot.Output out) throws IOException {
+        DateIndex merged = this;
+        if (pendingSize > 0) {
+            merged = new DateIndex();
+            merged.days = Arrays.copyOf(days, size + pendingSize);
+            merged.rows = Arrays.copyOf(rows, size + pendingSize);
+            merged.size = size;
+            merged.merge(pending, pendingSize);
+        }
+        out.putInt(merged.size);
+        out.putInts(merged.days, merged.size);
+        out.putInts(merged.rows, merged.size);
+    }
+
+    static DateIndex readSnapshot(ByteBuffer in) {
+        DateIndex index = new DateIndex();
+        int n = in.getInt();
+        index.days = new int[Math.max(n, 1024)];
+        index.rows = new int[Math.max(n, 1024)];
+        LedgerSnapshot.getInts(in, index.days, n);
+        LedgerSnapshot.getInts(in, index.rows, n);
+        index.size = n;
+        return index;
+    }
+
+    // === QUERY ===
+    // Row numbers whose date falls between fromDay and toDay (both inclusive), in row (file) order
+    public int[] rowsBetween(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return new int[0];
+        }
+        int start = lowerBound(fromDay);
+        int end = toDay == Integer.MAX_VALUE ? size : lowerBound(toDay + 1);
+        int pendingStart = pendingLowerBound(fromDay);
+        int pendingEnd = toDay == Integer.MAX_VALUE ? pendingSize : pendingLowerBound(toDay + 1);
+        int[] result = Arrays.copyOf(Arrays.copyOfRange(rows, start, end), end - start + pendingEnd - pendingStart);
+        for (int i = pendingStart, k = end - start; i < pendingEnd; i++) {
+            result[k++] = (int) pending[i];
+        }
+
+        // Within the range the rows are in date order; put them back in file order if that differs
+        for (int i = 1; i < result.length; i++) {
+            if (result[i - 1] > result[i]) {
+                Arrays.sort(result);
+                break;
+            }
+        }
+        return result;
+    }
+
+    // Number of rows between fromDay and toDay (both inclusive), without collecting them
+    public int countBetween(int fromDay, int toDay) {
+        if (fromDay > toDay) {
+            return 0;
+        }
+        int end = toDay == Integer.MAX_VALUE ? size : lowerBound(toDay + 1);
+        int pendingEnd = toDay == Integer.MAX_VALUE ? pendingSize : pendingLowerBound(toDay + 1);
+        return end - lowerBound(fromDay) + pendingEnd - pendingLowerBound(fromDay);
+    }
+
+    // First position whose day is >= epochDay
+    private int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position in the pending buffer whose day is >= epochDay
+    private int pendingLowerBound(int epochDay) {
+        long key = (long) epochDay << 32;
+        int low = 0;
+        int high = pendingSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pending[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
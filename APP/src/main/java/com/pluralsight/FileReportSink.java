@@ -0,0 +1,35 @@
+package com.pluralsight;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Writes report lines to a text file through a buffered writer
+public class FileReportSink implements ReportSink, Closeable {
+
+    private final BufferedWriter writer;
+
+    // Creates (or replaces) the file
+    public FileReportSink(Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void writeLine(CharSequence line) throws IOException {
+        writer.append(line);
+        writer.newLine();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.pluralsight;
+
+// Describes when queued appends are pushed to disk by the LedgerWriter
+public class GroupCommitPolicy {
+
+    // === INSTANCE VARIABLES ===
+    private final int maxBatchSize;      // Sync once this many records are waiting to be made durable
+    private final long maxLatencyMillis; // Extra wait for more records before syncing a batch (0 = sync at once)
+    private final boolean fsync;         // true = force the log to the storage device on every sync
+    private final int checkpointRecords; // Copy the log into the CSV file once it holds this many records
+
+    // maxLatencyMillis = 0: the writer syncs as soon as it has written everything queued; appends that arrive
+    //                       during a sync share the next one, so concurrent callers are still batched.
+    // maxLatencyMillis > 0: a batch smaller than maxBatchSize waits up to this long for more records first,
+    //                       trading latency for fewer syncs (only worth it with many steady writers).
+    // fsync = true:  a completed append survives a crash or power loss.
+    // fsync = false: a completed append survives the program crashing, but not the machine; a power loss
+    //                can lose the last few batches (the log's checksums make sure it is a clean cut).
+    // Checkpoints always sync, whatever the fsync setting, so the CSV file itself is never left half-written.
+
+    // === CONSTRUCTOR ===
+    public GroupCommitPolicy(int maxBatchSize, long maxLatencyMillis, boolean fsync) {
+        this(maxBatchSize, maxLatencyMillis, fsync, 10_000);
+    }
+
+    public GroupCommitPolicy(int maxBatchSize, long maxLatencyMillis, boolean fsync, int checkpointRecords) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        if (maxLatencyMillis < 0) {
+            throw new IllegalArgumentException("maxLatencyMillis must not be negative");
+        }
+        if (checkpointRecords < 1) {
+            throw new IllegalArgumentException("checkpointRecords must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.fsync = fsync;
+        this.checkpointRecords = checkpointRecords;
+    }
+
+    // === DEFAULT POLICY ===
+    // Up to 256 records per sync and no extra wait, with fsync so a completed append survives a crash,
+    // and a checkpoint into the CSV file every 10,000 records
+    public static GroupCommitPolicy defaults() {
+        return new GroupCommitPolicy(256, 0, true);
+    }
+
+    // === GETTERS ===
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    public int getCheckpointRecords() {
+        return checkpointRecords;
+    }
+}
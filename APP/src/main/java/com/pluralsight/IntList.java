@@ -0,0 +1,48 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+
+// Growable list of primitive ints (avoids boxing every row number into an Integer)
+class IntList {
+
+    private int[] values;
+    private int size = 0;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    // Takes over the first `size` values of the array (no copy)
+    IntList(int[] values, int size) {
+        this.values = values.length == 0 ? new int[1] : values;
+        this.size = size;
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    // The backing array; only the first size() values are meaningful
+    int[] array() {
+        return values;
+    }
+}
@@ -1,204 +1,762 @@
 package com.pluralsight;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-// Manages a collection of transactions (reading, writing, and displaying them)
-public class Ledger {
+// Manages a collection of transactions (reading, writing, and displaying them).
+// Safe to use from many threads: appends take a short write lock to update the store and indexes,
+// queries take a read lock only while planning, then walk the store lock-free.
+public class Ledger implements Closeable {
 
     // Name of the CSV file where transactions are stored persistently
     private static final String FILE_NAME = "transactions.csv";
 
-    // In-memory list that holds all transaction records loaded from or added to the file
-    private List<Transactions> transactions = new ArrayList<>();
+    // The file this ledger reads from and appends to
+    private final String fileName;
+
+    // Column store that holds all transaction records loaded from or added to the file
+    private TransactionStore store = new TransactionStore();
+
+    // Row numbers sorted by date, used by every date-bounded report
+    private DateIndex dateIndex = new DateIndex();
+
+    // Trigram indexes for case-insensitive vendor and description searches
+    private SubstringIndex vendorIndex = new SubstringIndex();
+    private SubstringIndex descriptionIndex = new SubstringIndex();
+
+    // Balance and per-day/month/year/vendor totals, updated on every append
+    private LedgerAggregates aggregates = new LedgerAggregates();
+
+    // Results of recent filtered queries: up to 64 queries and 8 million row numbers (32 MB) in all,
+    // enough to keep e.g. the deposits report of a 2-million-row ledger
+    private final QueryResultCache resultCache = new QueryResultCache(64, 8_000_000);
+
+    // Latencies, rows scanned/matched, bytes in and out and the append queue (see LedgerMetrics)
+    private final LedgerMetrics metrics = new LedgerMetrics(this::appendQueueDepth, resultCache);
+
+    // Lines that could not be parsed when the file was loaded
+    private List<TransactionLoader.MalformedLine> malformedLines = new ArrayList<>();
+
+    // Snapshot bookkeeping: a new snapshot is written on close once this many rows are missing from it, and
+    // in the background after a checkpoint once a quarter of the snapshot's rows are missing from it too (so
+    // a long-running process keeps a recent one, without rewriting a large ledger every 10,000 rows).
+    // Never, for a ledger opened without snapshots.
+    private static final int SNAPSHOT_AFTER_ROWS = 10_000;
+    private final boolean snapshots;
+    private volatile int snapshotRows = 0; // Rows covered by the snapshot file
+    private final AtomicBoolean snapshotQueued = new AtomicBoolean(false);
+
+    // Background snapshots of every ledger run one at a time on this thread, never on the writer's flusher
+    private static final ExecutorService SNAPSHOT_WRITER = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "ledger-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long csvLines = 0;    // Lines in the CSV file once every queued record has been checkpointed
+
+    // Guards the indexes and aggregates: many readers (query planning) or one writer (append)
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Long-lived writer that batches appends to the file (opened on first save)
+    private final GroupCommitPolicy commitPolicy;
+    private LedgerWriter writer;
 
     // === CONSTRUCTOR ===
     // Instantiates a Ledger object and automatically loads existing transactions from file
     public Ledger() {
+        this(FILE_NAME);
+    }
+
+    // Same as above, but for a ledger stored in a different file
+    public Ledger(String fileName) {
+        this(fileName, GroupCommitPolicy.defaults());
+    }
+
+    // Also lets the caller choose how appends are batched and synced to disk
+    public Ledger(String fileName, GroupCommitPolicy commitPolicy) {
+        this(fileName, commitPolicy, true);
+    }
+
+    // For ledgers that are short-lived or kept small (e.g. PartitionedLedger's journal): `snapshots` = false
+    // means close() never writes one, as the file is quick to parse and a snapshot would soon be thrown away
+    Ledger(String fileName, GroupCommitPolicy commitPolicy, boolean snapshots) {
+        this.fileName = fileName;
+        this.commitPolicy = commitPolicy;
+        this.snapshots = snapshots;
         loadTransactions();
     }
 
     // === LOAD TRANSACTIONS ===
-    // Reads each line from the CSV file, parses it, and populates the `transactions` list
+    // Recovers the file (see recover()), starts from the snapshot if there is a current one, bulk-loads the
+    // CSV rows the snapshot doesn't cover in parallel (see TransactionLoader), replays the write-ahead log
+    // records that are not in the CSV yet, and populates the store and indexes.
+    // Lines that can't be parsed are kept in `malformedLines` and reported instead of silently dropped.
+    // A missing file is fine on first run; any other read error is passed on to the caller.
     private void loadTransactions() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_NAME))) {
-            String line;
-
-            // Read each line of the file
-            while ((line = reader.readLine()) != null) {
-                // Split the line using '|' as delimiter, escaped via Pattern.quote
-                String[] parts = line.split(Pattern.quote("|"));
-
-                // Ensure the line has exactly 5 components (date, time, description, vendor, amount)
-                if (parts.length == 5) {
-                    // Clean the amount string to remove dollar sign or commas and convert to double
-                    double amount = Double.parseDouble(parts[4].replace("$", "").replace(",", ""));
-
-                    // Create a new Transactions object and add to the list
-                    Transactions t = new Transactions(parts[0], parts[1], parts[2], parts[3], amount);
-                    transactions.add(t); // <- You were missing this line originally
+        Path csv = Path.of(fileName);
+        long start = System.nanoTime();
+        long bytesRead = 0;
+        try {
+            List<byte[]> unsaved = recover(csv);
+            if (!Files.exists(csv) && unsaved.isEmpty()) {
+                System.out.println("No existing transactions found. A new file will be created.");
+                return;
+            }
+            long fromOffset = 0;
+            LedgerSnapshot snapshot = readSnapshot(csv);
+            if (snapshot != null) {
+                store = snapshot.getStore();
+                dateIndex = snapshot.getDateIndex();
+                vendorIndex = snapshot.getVendorIndex();
+                descriptionIndex = snapshot.getDescriptionIndex();
+                aggregates = snapshot.getAggregates();
+                malformedLines = new ArrayList<>(snapshot.getMalformedLines());
+                snapshotRows = store.size();
+                csvLines = snapshot.getCsvLines();
+                fromOffset = snapshot.getCsvLength();
+                bytesRead += Files.size(LedgerSnapshot.pathFor(csv));
+            }
+            if (Files.exists(csv)) {
+                bytesRead += Math.max(0, Files.size(csv) - fromOffset);
+                TransactionLoader.LoadResult rest = TransactionLoader.load(csv, fromOffset, csvLines);
+                addLoadedRows(rest.getStore());
+                malformedLines.addAll(rest.getMalformedLines());
+                csvLines += rest.getLineCount();
+            }
+            if (!unsaved.isEmpty()) {
+                byte[] logged = joinLines(unsaved);
+                bytesRead += logged.length;
+                TransactionLoader.LoadResult replayed = TransactionLoader.parse(logged);
+                addLoadedRows(replayed.getStore());
+                malformedLines.addAll(replayed.getMalformedLines());
+                csvLines += replayed.getLineCount();
+                openWriter(); // Checkpoints the replayed records into the CSV file right away
+            }
+            metrics.recordLoad(System.nanoTime() - start, bytesRead);
+            if (!malformedLines.isEmpty()) {
+                System.out.println("Skipped " + malformedLines.size() + " malformed line(s) in " + fileName + ":");
+                for (TransactionLoader.MalformedLine bad : malformedLines) {
+                    System.out.println("  " + bad);
                 }
             }
         } catch (IOException e) {
-            // File not found or unable to read; this is fine on first run
-            System.out.println("No existing transactions found. A new file will be created.");
+            throw new UncheckedIOException("Could not load " + fileName, e);
+        }
+    }
+
+    // A damaged snapshot is reported and ignored; everything in it can be rebuilt from the CSV file
+    private static LedgerSnapshot readSnapshot(Path csv) {
+        try {
+            return LedgerSnapshot.read(csv);
+        } catch (IOException e) {
+            System.out.println("Ignoring unusable snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Adds freshly parsed rows to the store and brings the indexes and totals up to date, while the ledger is
+    // being loaded. An empty ledger takes the rows as they are and builds everything in bulk; that replaces
+    // the store, indexes and totals, which is only safe before the constructor returns (getStore() and the
+    // totals getters read those fields without the lock). Otherwise the rows are appended.
+    private void addLoadedRows(TransactionStore loaded) {
+        if (store.size() == 0) {
+            store = loaded;
+            dateIndex = DateIndex.build(store);
+            vendorIndex = SubstringIndex.build(store, true);
+            descriptionIndex = SubstringIndex.build(store, false);
+            aggregates = LedgerAggregates.build(store);
+            resultCache.clear(); // Cached row numbers referred to the old store
+            return;
+        }
+        appendRows(loaded);
+    }
+
+    // Appends rows to the existing store and adds them to the indexes and totals; the objects stay the same,
+    // so lock-free readers keep working. Caller holds the write lock (or is the constructor).
+    private void appendRows(TransactionStore loaded) {
+        int from = store.size();
+        store.appendAll(loaded);
+        dateIndex.addAll(store, from); // One merge instead of a shift per back-dated row
+        for (int row = from; row < store.size(); row++) {
+            vendorIndex.add(row, store.getVendorId(row), store.getVendor(row));
+            descriptionIndex.add(row, store.getDescriptionId(row), store.getDescription(row));
+            aggregates.add(store.getEpochDay(row), store.getVendorId(row), store.getAmountCents(row));
+        }
+    }
+
+    // Adds one stored row to the date and substring indexes and to the running totals
+    private void indexRow(int row) {
+        dateIndex.add(row, store.getEpochDay(row));
+        vendorIndex.add(row, store.getVendorId(row), store.getVendor(row));
+        descriptionIndex.add(row, store.getDescriptionId(row), store.getDescription(row));
+        aggregates.add(store.getEpochDay(row), store.getVendorId(row), store.getAmountCents(row));
+    }
+
+    // === RECOVER ===
+    // Puts the files back in a consistent state after a crash and returns the log records that still
+    // have to be replayed (those after the last checkpoint):
+    //   - a torn record at the end of the log is cut off (WriteAheadLog.open)
+    //   - if a checkpoint was copying records into the CSV when we stopped, the half-copied part is
+    //     cut off; the log still holds those records, so they are replayed instead
+    // Extra CSV text with nothing left in the log is someone's hand edit and is kept.
+    private static List<byte[]> recover(Path csv) throws IOException {
+        Path logFile = WriteAheadLog.pathFor(csv);
+        if (!Files.exists(logFile)) {
+            return new ArrayList<>();
+        }
+        Checkpoint checkpoint = Checkpoint.read(Checkpoint.pathFor(csv));
+        try (WriteAheadLog log = WriteAheadLog.open(logFile)) {
+            if (log.getDiscardedBytes() > 0) {
+                System.out.println("Discarded an incomplete record (" + log.getDiscardedBytes()
+                        + " bytes) at the end of " + logFile);
+            }
+            List<byte[]> unsaved = log.readAfter(checkpoint == null ? 0 : checkpoint.getLastSequence());
+            if (checkpoint != null && !unsaved.isEmpty() && Files.exists(csv)
+                    && Files.size(csv) > checkpoint.getCsvLength()) {
+                try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.WRITE)) {
+                    channel.truncate(checkpoint.getCsvLength());
+                    channel.force(false);
+                }
+            }
+            return unsaved;
         }
     }
 
+    // Turns log records back into CSV text
+    private static byte[] joinLines(List<byte[]> lines) {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        for (byte[] line : lines) {
+            text.write(line, 0, line.length);
+            text.write('\n');
+        }
+        return text.toByteArray();
+    }
+
+    // === GET MALFORMED LINES ===
+    // Lines from the file that were skipped during the last load, with the reason for each
+    public List<TransactionLoader.MalformedLine> getMalformedLines() {
+        return malformedLines;
+    }
+
     // === ADD TRANSACTION ===
-    // Adds a transaction to memory and persists it to the file
-    public void addTransactions(Transactions t) {
-        transactions.add(t);       // Store in-memory
-        saveTransactions(t);       // Append to file
+    // Adds a transaction to memory and persists it to the file.
+    // Durable on return: waits until the record's batch has been synced to the log.
+    // Throws IOException if the record could not be saved; see addTransactionsAsync for what that means.
+    public void addTransactions(Transactions t) throws IOException {
+        try {
+            addTransactionsAsync(t).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // === ADD TRANSACTION (ASYNC) ===
+    // Adds a transaction to memory and queues it for the file without waiting.
+    // The returned handle completes once the record is durable, or fails with the reason it isn't:
+    //   - a record that is too long, or a writer that can't be opened or has stopped, is turned away before
+    //     the transaction is added, so the ledger is unchanged
+    //   - an error while writing or syncing the log means the outcome is unknown: the transaction stays in
+    //     the ledger (queries and totals include it) and is in the file if it reached the log in time.
+    //     Appends are not rolled back, as readers may already have seen the row.
+    public CompletableFuture<Void> addTransactionsAsync(Transactions t) {
+        byte[] record;
+        try {
+            record = LedgerWriter.encode(t.toString()); // Too long for the file: rejected before it is in memory
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        lock.writeLock().lock();
+        try {
+            LedgerWriter out = openWriter(); // Fails before the row is added if the file can't be written
+            int row = store.append(t); // Store in-memory (rejects an invalid date or time)
+            indexRow(row);             // Keep the indexes and totals current
+            csvLines++;
+            return out.appendRecords(new byte[][]{record}); // Queue while still locked, so file order = row order
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // === ADD MANY TRANSACTIONS (ASYNC) ===
+    // Adds a batch of rows (e.g. from BulkImporter) under one lock and queues them for the file as one unit,
+    // so the whole batch costs a single log sync. The handle completes once every row is durable; it fails
+    // the same way as addTransactionsAsync (a row too long for the file turns the whole batch away unadded).
+    public CompletableFuture<Void> addAllAsync(TransactionStore rows) {
+        byte[][] records = new byte[rows.size()][];
+        StringBuilder line = new StringBuilder(128);
+        try {
+            for (int row = 0; row < rows.size(); row++) {
+                line.setLength(0);
+                rows.appendRow(row, line);
+                records[row] = LedgerWriter.encode(line.toString());
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        lock.writeLock().lock();
+        try {
+            LedgerWriter out = openWriter();
+            appendRows(rows); // Never swaps the store, even when the ledger is empty: others may be reading it
+            csvLines += records.length;
+            return out.appendRecords(records); // The group-commit writer logs them, then checkpoints them to the CSV
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     // === SAVE TRANSACTION ===
-    // Appends a single transaction to the end of the CSV file
-    private void saveTransactions(Transactions t) {
+    // Opens the group-commit writer once and keeps it open, instead of once per record. It appends records to
+    // the write-ahead log and from there, at the next checkpoint, to the end of the CSV file.
+    // Throws if the writer can't be opened or has stopped (its flusher thread died), so the caller can turn
+    // the rows away before adding them.
+    private synchronized LedgerWriter openWriter() throws IOException {
+        if (writer == null) {
+            writer = new LedgerWriter(fileName, commitPolicy, metrics, this::afterCheckpoint);
+        }
+        if (!writer.isOpen()) {
+            throw new IOException("Ledger writer stopped; reopen the ledger to save more transactions");
+        }
+        return writer;
+    }
+
+    private synchronized int appendQueueDepth() {
+        return writer == null ? 0 : writer.getQueueDepth();
+    }
+
+    // === CLOSE ===
+    // Writes out any queued transactions and releases the file.
+    // Also refreshes the snapshot once enough rows have been added since the last one.
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock(); // Always the lock first, then the writer (same order as appends)
+        try {
+            closeWriter();
+            if (snapshots && store.size() - snapshotRows >= SNAPSHOT_AFTER_ROWS) {
+                saveSnapshot();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Checkpoints every queued record into the CSV file; the writer reopens on the next append
+    private synchronized void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    // === SNAPSHOT ===
+    // Saves the in-memory state next to the file so the next start can skip parsing it (see LedgerSnapshot)
+    public void writeSnapshot() throws IOException {
+        lock.writeLock().lock();
         try {
-            FileWriter fw = new FileWriter(FILE_NAME, true);      // 'true' = append mode
-            BufferedWriter bw = new BufferedWriter(fw);
+            closeWriter();
+            saveSnapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called on the writer's flusher thread after each checkpoint: queues a background snapshot once enough
+    // rows are missing from the current one, so a crash doesn't mean parsing everything again
+    private void afterCheckpoint() {
+        int missing = store.size() - snapshotRows;
+        if (snapshots && missing >= Math.max(SNAPSHOT_AFTER_ROWS, snapshotRows / 4)
+                && snapshotQueued.compareAndSet(false, true)) {
+            SNAPSHOT_WRITER.execute(this::snapshotInBackground);
+        }
+    }
 
-            bw.write(t.toString());   // Save formatted transaction line
-            bw.newLine();             // Add newline after the record
-            bw.flush();               // Forces any buffered output to the file system
-            bw.close();               // Close writer
+    // Holds the read lock, so queries carry on while appends wait; the writer is closed first so the CSV file
+    // has every stored row (it reopens on the next append). A failure only means an older snapshot is used.
+    private void snapshotInBackground() {
+        snapshotQueued.set(false);
+        lock.readLock().lock();
+        try {
+            if (store.size() - snapshotRows >= SNAPSHOT_AFTER_ROWS) { // close() may have written one since
+                closeWriter();
+                saveSnapshot();
+            }
         } catch (IOException e) {
-            // Print error if writing to file fails
-            e.printStackTrace();
+            System.out.println("Could not save a snapshot of " + fileName + ": " + e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the lock (appends are held off) and has closed the writer, so the CSV file holds exactly
+    // the stored rows
+    private void saveSnapshot() throws IOException {
+        Path csv = Path.of(fileName);
+        if (!Files.exists(csv)) {
+            return; // Nothing saved yet
         }
+        new LedgerSnapshot(Files.size(csv), csvLines, store, dateIndex, vendorIndex, descriptionIndex,
+                aggregates, malformedLines).write(csv);
+        snapshotRows = store.size();
+        metrics.recordBytesWritten(Files.size(LedgerSnapshot.pathFor(csv)));
     }
 
     // === DISPLAY ALL TRANSACTIONS ===
     // Prints all transactions to the console, newest first
     public void displayAllTransactions() {
-        List<Transactions> sorted = new ArrayList<>(transactions);
-        Collections.reverse(sorted); // Show most recent first
-        for (Transactions t : sorted) {
-            System.out.println(t);
-        }
+        print(LedgerQuery.builder().newestFirst().build());
+    }
+
+    // Same, but to any sink and only the requested page (e.g. Page.first(50) for the 50 most recent)
+    public int displayAllTransactions(ReportSink sink, Page page) throws IOException {
+        return report(LedgerQuery.builder().newestFirst().build(), sink, page);
     }
 
     // === GETTER METHOD ===
-    // Returns the full list of transactions for external access
+    // Returns the full list of transactions for external access.
+    // This is a read-only snapshot view over the column store (no copy of the data is made):
+    // rows appended afterwards don't appear in it, so it can be iterated while other threads append.
     public List<Transactions> getTransactions() {
-        return transactions;
+        return store.asList();
+    }
+
+    // Hit, miss and eviction counts of the query result cache
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public LedgerMetrics getMetrics() {
+        return metrics;
+    }
+
+    // The column store itself, for the other ledger classes in this package (read-only use)
+    TransactionStore getStore() {
+        return store;
+    }
+
+    // === AGGREGATES ===
+    // Running balance and period/vendor totals, answered without scanning any rows
+    public LedgerAggregates getAggregates() {
+        return aggregates;
+    }
+
+    // Totals for one vendor name (exact, case-sensitive), or empty totals if the vendor is unknown
+    public LedgerAggregates.Totals getVendorTotals(String vendor) {
+        return aggregates.getVendor(store.getVendors().lookup(vendor));
+    }
+
+    // Full-scan check of the running totals; an empty list means they are exact.
+    // Appends are held off during the check so the scan and the totals describe the same rows.
+    public List<String> verifyAggregates() {
+        lock.writeLock().lock();
+        try {
+            return aggregates.verify(store);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // === DISPLAY SUMMARY ===
+    // Prints the balance plus this month's and this year's totals
+    public void displaySummary() {
+        java.time.LocalDate today = java.time.LocalDate.now();
+        LedgerAggregates.Totals all = aggregates.getOverall();
+        System.out.println("Balance: $" + formatCents(all.getNetCents()));
+        printTotals("All time", all);
+        printTotals("This month", aggregates.getMonth(today.getYear(), today.getMonthValue()));
+        printTotals("This year", aggregates.getYear(today.getYear()));
+    }
+
+    private void printTotals(String label, LedgerAggregates.Totals totals) {
+        System.out.println(label + ": " + totals.getDepositCount() + " deposits ($" + formatCents(totals.getDepositCents())
+                + "), " + totals.getPaymentCount() + " payments ($" + formatCents(totals.getPaymentCents())
+                + "), net $" + formatCents(totals.getNetCents()));
+    }
+
+    private static String formatCents(long cents) {
+        return Money.format(cents);
     }
 
     // === DISPLAY DEPOSITS ONLY ===
-    // Filters and shows only positive-value transactions (deposits)
+    // Filters and shows only positive-value transactions (deposits), newest first
     public void displayDeposits() {
-        List<Transactions> deposits = new ArrayList<>();
-        for (Transactions t : transactions) {
-            if (t.getAmount() > 0) {
-                deposits.add(t);
-            }
-        }
-        Collections.reverse(deposits); // Newest first
-        for (Transactions t : deposits) { // For-each loop, iterates through deposits arraylist, t being the transaction it's on
-            System.out.println(t);
-        }
+        print(LedgerQuery.builder().deposits().newestFirst().build());
+    }
+
+    public int displayDeposits(ReportSink sink, Page page) throws IOException {
+        return report(LedgerQuery.builder().deposits().newestFirst().build(), sink, page);
     }
 
     // === DISPLAY PAYMENTS ONLY ===
-    // Filters and shows only negative-value transactions (payments)
+    // Filters and shows only negative-value transactions (payments), newest first
     public void displayPayments() {
-        List<Transactions> payments = new ArrayList<>();
-        for (Transactions t : transactions) { // For-each loop, iterates through payments arraylist, t being the transaction it's on
-            if (t.getAmount() < 0) {
-                payments.add(t);
-            }
-        }
-        Collections.reverse(payments); // Newest first
-        for (Transactions t : payments) {
-            System.out.println(t);
-        }
+        print(LedgerQuery.builder().payments().newestFirst().build());
+    }
+
+    public int displayPayments(ReportSink sink, Page page) throws IOException {
+        return report(LedgerQuery.builder().payments().newestFirst().build(), sink, page);
     }
 
     // === DISPLAY CURRENT MONTH TRANSACTIONS ===
     public void displayMonthToDate() {
-        String currentMonth = java.time.LocalDate.now().getMonth().toString(); // e.g. "APRIL"
-        int currentYear = java.time.LocalDate.now().getYear();
+        print(monthToDateQuery());
+    }
 
-        for (Transactions t : transactions) { // For-each loop, iterates through transactions t (current transaction) arraylist, and gets the date
-            java.time.LocalDate date = java.time.LocalDate.parse(t.getDate());
-            if (date.getMonth().toString().equals(currentMonth) && date.getYear() == currentYear) {
-                System.out.println(t);
-            }
-        }
+    public int displayMonthToDate(ReportSink sink, Page page) throws IOException {
+        return report(monthToDateQuery(), sink, page);
+    }
+
+    private LedgerQuery monthToDateQuery() {
+        java.time.LocalDate firstOfMonth = java.time.LocalDate.now().withDayOfMonth(1);
+        return LedgerQuery.builder().between(firstOfMonth, firstOfMonth.plusMonths(1).minusDays(1)).build(); // Whole current month
     }
 
     // === DISPLAY PREVIOUS MONTH TRANSACTIONS ===
     public void displayPreviousMonth() {
-        java.time.LocalDate now = java.time.LocalDate.now();
-        java.time.LocalDate previousMonthDate = now.minusMonths(1);
-        int previousMonth = previousMonthDate.getMonthValue();
-        int yearOfPreviousMonth = previousMonthDate.getYear();
+        print(previousMonthQuery());
+    }
 
-        for (Transactions t : transactions) {
-            java.time.LocalDate date = java.time.LocalDate.parse(t.getDate());
-            if (date.getMonthValue() == previousMonth && date.getYear() == yearOfPreviousMonth) {
-                System.out.println(t);
-            }
-        }
+    public int displayPreviousMonth(ReportSink sink, Page page) throws IOException {
+        return report(previousMonthQuery(), sink, page);
+    }
+
+    private LedgerQuery previousMonthQuery() {
+        java.time.LocalDate firstOfPreviousMonth = java.time.LocalDate.now().withDayOfMonth(1).minusMonths(1);
+        return LedgerQuery.builder().between(firstOfPreviousMonth, firstOfPreviousMonth.plusMonths(1).minusDays(1)).build();
     }
 
     // === DISPLAY CURRENT YEAR TRANSACTIONS ===
     public void displayYearToDate() {
-        int currentYear = java.time.LocalDate.now().getYear();
+        print(yearToDateQuery());
+    }
 
-        for (Transactions t : transactions) {
-            java.time.LocalDate date = java.time.LocalDate.parse(t.getDate());
-            if (date.getYear() == currentYear) {
-                System.out.println(t);
-            }
-        }
+    public int displayYearToDate(ReportSink sink, Page page) throws IOException {
+        return report(yearToDateQuery(), sink, page);
+    }
+
+    private LedgerQuery yearToDateQuery() {
+        java.time.LocalDate firstOfYear = java.time.LocalDate.now().withDayOfYear(1);
+        return LedgerQuery.builder().between(firstOfYear, firstOfYear.plusYears(1).minusDays(1)).build(); // Whole current year
+    }
+
+    // === ALL STANDARD REPORTS AT ONCE ===
+    // Month to date, previous month, year to date, deposits and payments, in that order, all written to one
+    // sink. Same rows as calling the five display methods one after another, but the reports that have to
+    // check every row share a single pass (see ReportBatch); call run() on the result, optionally after
+    // adding more reports.
+    public ReportBatch standardReports(ReportSink sink) {
+        return standardReports(sink, Page.all());
+    }
+
+    // Same, with the same page of each report
+    public ReportBatch standardReports(ReportSink sink, Page page) {
+        return new ReportBatch(this)
+                .add(monthToDateQuery(), sink, page)
+                .add(previousMonthQuery(), sink, page)
+                .add(yearToDateQuery(), sink, page)
+                .add(LedgerQuery.builder().deposits().newestFirst().build(), sink, page)
+                .add(LedgerQuery.builder().payments().newestFirst().build(), sink, page);
+    }
+
+    // === SEARCH BY VENDOR / DESCRIPTION ===
+    // Case-insensitive "contains" search, answered from the trigram index; results are in file order
+    public List<Transactions> searchByVendor(String keyword) {
+        return search(LedgerQuery.builder().vendorContains(keyword).build());
+    }
+
+    public List<Transactions> searchByDescription(String keyword) {
+        return search(LedgerQuery.builder().descriptionContains(keyword).build());
+    }
+
+    private List<Transactions> search(LedgerQuery q) {
+        long start = System.nanoTime();
+        QueryCursor cursor = query(q);
+        List<Transactions> result = toList(cursor);
+        metrics.recordSearch(System.nanoTime() - start, cursor.getRowsExamined(), result.size());
+        return result;
     }
 
     // === ASK USER FOR SPECIFICS TO MAKE A CUSTOM SEARCH ===
+    // Blank strings mean "don't filter on this", and so does a null amount; matches print in file order.
+    // The amount is in dollars and is rounded to the nearest cent (Money.fromDouble) before matching.
     public void customSearch(String startDate, String endDate, String description, String vendor, Double amount){
-        // Loop through each transaction and evaluate if it meets the criteria
-        for (Transactions t : transactions) {
-            boolean matches = true; // Marked (upcoming) false if any filter doesn't match
-
-            /* DATE FILTERS
-            === Filter by Start Date (inclusively) === */
-            if (!startDate.isEmpty()) {
-                java.time.LocalDate start = java.time.LocalDate.parse(startDate);
-                java.time.LocalDate entryDate = java.time.LocalDate.parse(t.getDate());
-                if (entryDate.isBefore(start)) {
-                    matches = false; // Transaction is too old
-                }
+        customSearchCents(startDate, endDate, description, vendor, amount == null ? null : Money.fromDouble(amount));
+    }
+
+    public int customSearch(String startDate, String endDate, String description, String vendor, Double amount,
+                            ReportSink sink, Page page) throws IOException {
+        return customSearchCents(startDate, endDate, description, vendor,
+                amount == null ? null : Money.fromDouble(amount), sink, page);
+    }
+
+    // Same, with the amount as an exact number of cents (e.g. from Money.parseCents), so it matches to the cent
+    public void customSearchCents(String startDate, String endDate, String description, String vendor, Long amountCents){
+        print(customSearchQuery(startDate, endDate, description, vendor, amountCents));
+    }
+
+    public int customSearchCents(String startDate, String endDate, String description, String vendor, Long amountCents,
+                                 ReportSink sink, Page page) throws IOException {
+        return report(customSearchQuery(startDate, endDate, description, vendor, amountCents), sink, page);
+    }
+
+    private LedgerQuery customSearchQuery(String startDate, String endDate, String description, String vendor, Long amountCents) {
+        LedgerQuery.Builder search = LedgerQuery.builder()
+                .from(startDate.isEmpty() ? null : java.time.LocalDate.parse(startDate))
+                .to(endDate.isEmpty() ? null : java.time.LocalDate.parse(endDate))
+                .descriptionContains(description)
+                .vendorContains(vendor);
+        if (amountCents != null) {
+            search.amountEqualsCents(amountCents);
+        }
+        return search.build();
+    }
+
+    // === QUERY ===
+    // Runs a query and returns a cursor over the matches. Filtered queries go through the result cache
+    // (see QueryResultCache), so repeating a report costs only the rows appended since; a query without
+    // filters is a lazy walk over the store (see QueryPlanner for how queries are planned).
+    public QueryCursor query(LedgerQuery q) {
+        lock.readLock().lock();
+        try {
+            if (QueryResultCache.isWorthCaching(q)) {
+                return resultCache.get(q, store, dateIndex, vendorIndex, descriptionIndex)
+                        .cursor(store, q.isNewestFirst());
             }
-            // --- Filter by End Date (inclusive) ---
-            if (!endDate.isEmpty()) {
-                java.time.LocalDate end = java.time.LocalDate.parse(endDate);
-                java.time.LocalDate entryDate = java.time.LocalDate.parse(t.getDate());
-                if (entryDate.isAfter(end)) {
-                    matches = false; // Transaction is too recent
+            return QueryPlanner.plan(q, store, dateIndex, vendorIndex, descriptionIndex);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // === REPORT BATCH ===
+    // The matches of several queries at once, for ReportBatch. Cached results come from the result cache and
+    // queries without filters are lazy walks over the store. The rest are planned as query() would plan them:
+    // those an index narrows down (e.g. one month through the date index) run on their own, and only those
+    // that would have to check every row anyway share one pass over the columns, split over `pool`.
+    // Every computed result is cached just like query()'s.
+    BatchResult matchAll(List<LedgerQuery> queries, ForkJoinPool pool) {
+        lock.readLock().lock();
+        try {
+            QueryCursor[] cursors = new QueryCursor[queries.size()];
+            IntList toScan = new IntList();
+            List<QueryCursor> scans = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                LedgerQuery q = queries.get(i);
+                if (!QueryResultCache.isWorthCaching(q)) {
+                    cursors[i] = QueryPlanner.plan(q, store, dateIndex, vendorIndex, descriptionIndex);
+                    continue;
+                }
+                QueryResultCache.Result cached = resultCache.lookup(q, store, vendorIndex, descriptionIndex);
+                if (cached != null) {
+                    cursors[i] = cached.cursor(store, q.isNewestFirst());
+                    continue;
+                }
+                QueryCursor planned = QueryPlanner.plan(q, store, dateIndex, vendorIndex, descriptionIndex);
+                if (planned.scansEveryRow()) {
+                    toScan.add(i);
+                    scans.add(planned);
+                } else {
+                    cursors[i] = resultCache.fill(q, planned, store).cursor(store, q.isNewestFirst());
                 }
             }
-
-            // --- Filter by Description (case-insensitive contains) ---
-            if (!description.isEmpty() && !t.getDescription().toLowerCase().contains(description)) {
-                matches = false; // Description doesn’t match
+            if (scans.isEmpty()) {
+                return new BatchResult(store, cursors, 0);
             }
 
-            // --- Filter by Vendor (case-insensitive contains) ---
-            if (!vendor.isEmpty() && !t.getVendor().toLowerCase().contains(vendor)) {
-                matches = false; // Vendor doesn’t match
+            int size = store.size();
+            IntList[] found = ReportBatch.scan(store, size, scans.toArray(new QueryCursor[0]), pool);
+            for (int k = 0; k < found.length; k++) {
+                LedgerQuery q = queries.get(toScan.get(k));
+                resultCache.put(q, found[k].array(), found[k].size(), size);
+                cursors[toScan.get(k)] = new QueryResultCache.Result(found[k].array(), found[k].size(), 0)
+                        .cursor(store, q.isNewestFirst());
             }
+            return new BatchResult(store, cursors, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
 
-            // --- Filter by Amount (exact match) ---
-            if (amount != null && t.getAmount() != amount) {
-                matches = false; // Amount doesn’t match exactly
-            }
+    // What matchAll() found: a cursor per query, over the store they all refer to
+    static final class BatchResult {
+        private final TransactionStore store;
+        private final QueryCursor[] cursors;
+        private final long passRows; // Rows checked by the shared pass (0 if every query was cached)
+
+        BatchResult(TransactionStore store, QueryCursor[] cursors, long passRows) {
+            this.store = store;
+            this.cursors = cursors;
+            this.passRows = passRows;
+        }
+
+        TransactionStore getStore() {
+            return store;
+        }
 
-            // --- If all checks passed, print the transaction ---
-            if (matches) {
-                System.out.println(t);
+        QueryCursor cursor(int index) {
+            return cursors[index];
+        }
+
+        long getPassRows() {
+            return passRows;
+        }
+    }
+
+    // === REPORT ===
+    // Streams a query's matches to a sink: the cursor walks the rows in place (newest first needs no copy
+    // or reverse), skips `page.offset` matches, formats at most `page.limit` rows straight from the columns,
+    // and flushes the sink once at the end. Returns the number of rows written.
+    public int report(LedgerQuery q, ReportSink sink, Page page) throws IOException {
+        long start = System.nanoTime();
+        QueryCursor cursor = query(q);
+        int skipped = 0;
+        while (skipped < page.getOffset() && cursor.nextRow() >= 0) {
+            skipped++;
+        }
+        int written = 0;
+        if (skipped == page.getOffset()) { // Otherwise the page starts past the last match
+            StringBuilder line = new StringBuilder(128); // Reused for every row
+            int row;
+            while (written < page.getLimit() && (row = cursor.nextRow()) >= 0) {
+                line.setLength(0);
+                store.appendRow(row, line);
+                sink.writeLine(line);
+                written++;
             }
         }
+        sink.flush();
+        metrics.recordReport(System.nanoTime() - start, cursor.getRowsExamined(), skipped + written);
+        return written;
+    }
+
+    // Prints every match to the console through a buffered sink
+    private void print(LedgerQuery q) {
+        try {
+            report(q, new ConsoleReportSink(), Page.all());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private List<Transactions> toList(QueryCursor cursor) {
+        List<Transactions> result = new ArrayList<>();
+        cursor.forEachRemaining(result::add);
+        return result;
     }
 }
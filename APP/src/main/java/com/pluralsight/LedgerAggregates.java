@@ -0,0 +1,275 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Running totals kept up to date on every append, so balances and period sums never need a scan.
+// All money is held in whole cents (long), so the totals are exact.
+public class LedgerAggregates {
+
+    // === TOTALS FOR ONE GROUP (a day, month, year, vendor or the whole ledger) ===
+    public static class Totals {
+        private long count;        // Every row, including $0.00 rows
+        private long depositCount;
+        private long depositCents;
+        private long paymentCount;
+        private long paymentCents; // Negative (payments are stored as negative amounts)
+
+        void add(long cents) {
+            count++;
+            if (cents > 0) {
+                depositCount++;
+                depositCents += cents;
+            } else if (cents < 0) {
+                paymentCount++;
+                paymentCents += cents;
+            }
+        }
+
+        void add(Totals other) {
+            count += other.count;
+            depositCount += other.depositCount;
+            depositCents += other.depositCents;
+            paymentCount += other.paymentCount;
+            paymentCents += other.paymentCents;
+        }
+
+        static Totals of(long count, long depositCount, long depositCents, long paymentCount, long paymentCents) {
+            Totals totals = new Totals();
+            totals.count = count;
+            totals.depositCount = depositCount;
+            totals.depositCents = depositCents;
+            totals.paymentCount = paymentCount;
+            totals.paymentCents = paymentCents;
+            return totals;
+        }
+
+        Totals copy() {
+            Totals copy = new Totals();
+            copy.add(this);
+            return copy;
+        }
+
+        void write(LedgerSnapshot.Output out) throws IOException {
+            out.putLong(count);
+            out.putLong(depositCount);
+            out.putLong(depositCents);
+            out.putLong(paymentCount);
+            out.putLong(paymentCents);
+        }
+
+        static Totals read(ByteBuffer in) {
+            Totals totals = new Totals();
+            totals.count = in.getLong();
+            totals.depositCount = in.getLong();
+            totals.depositCents = in.getLong();
+            totals.paymentCount = in.getLong();
+            totals.paymentCents = in.getLong();
+            return totals;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getDepositCount() {
+            return depositCount;
+        }
+
+        public long getDepositCents() {
+            return depositCents;
+        }
+
+        public long getPaymentCount() {
+            return paymentCount;
+        }
+
+        public long getPaymentCents() {
+            return paymentCents;
+        }
+
+        // Deposits plus payments, i.e. the change in balance
+        public long getNetCents() {
+            return depositCents + paymentCents;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Totals)) {
+                return false;
+            }
+            Totals t = (Totals) o;
+            return count == t.count && depositCount == t.depositCount && depositCents == t.depositCents
+                    && paymentCount == t.paymentCount && paymentCents == t.paymentCents;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(depositCents) * 31 + Long.hashCode(paymentCents);
+        }
+
+        @Override
+        public String toString() {
+            return getCount() + " rows, deposits " + depositCents + "c, payments " + paymentCents + "c";
+        }
+    }
+
+    // === INSTANCE VARIABLES ===
+    private final Totals overall = new Totals();
+    private final TreeMap<Integer, Totals> byDay = new TreeMap<>();   // Key: epoch day
+    private final TreeMap<Integer, Totals> byMonth = new TreeMap<>(); // Key: year * 12 + (month - 1)
+    private final TreeMap<Integer, Totals> byYear = new TreeMap<>();  // Key: year
+    private final List<Totals> byVendor = new ArrayList<>();          // Index: vendor dictionary id
+
+    // The last day converted to a month/year; rows usually arrive day by day, so this saves most conversions
+    private int cachedDay = Integer.MIN_VALUE;
+    private int cachedMonthKey;
+    private int cachedYear;
+
+    // === BUILD (REBUILD FROM THE STORED ROWS AT STARTUP) ===
+    public static LedgerAggregates build(TransactionStore store) {
+        LedgerAggregates aggregates = new LedgerAggregates();
+        for (int row = 0; row < store.size(); row++) {
+            aggregates.add(store.getEpochDay(row), store.getVendorId(row), store.getAmountCents(row));
+        }
+        return aggregates;
+    }
+
+    // === ADD ===
+    // Folds one appended row into every total
+    public synchronized void add(int epochDay, int vendorId, long cents) {
+        if (epochDay != cachedDay) {
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            cachedDay = epochDay;
+            cachedYear = date.getYear();
+            cachedMonthKey = monthKey(cachedYear, date.getMonthValue());
+        }
+        overall.add(cents);
+        byDay.computeIfAbsent(epochDay, k -> new Totals()).add(cents);
+        byMonth.computeIfAbsent(cachedMonthKey, k -> new Totals()).add(cents);
+        byYear.computeIfAbsent(cachedYear, k -> new Totals()).add(cents);
+        while (byVendor.size() <= vendorId) {
+            byVendor.add(new Totals());
+        }
+        byVendor.get(vendorId).add(cents);
+    }
+
+    private static int monthKey(int year, int month) {
+        return year * 12 + (month - 1);
+    }
+
+    // === SNAPSHOT ===
+    // Only the per-day and per-vendor totals are saved; months, years and the overall total are sums of days
+    synchronized void writeSnapshot(LedgerSnapshot.Output out) throws IOException {
+        out.putInt(byDay.size());
+        for (Map.Entry<Integer, Totals> day : byDay.entrySet()) {
+            out.putInt(day.getKey());
+            day.getValue().write(out);
+        }
+        out.putInt(byVendor.size());
+        for (Totals vendor : byVendor) {
+            vendor.write(out);
+        }
+    }
+
+    static LedgerAggregates readSnapshot(ByteBuffer in) {
+        LedgerAggregates aggregates = new LedgerAggregates();
+        int days = in.getInt();
+        for (int i = 0; i < days; i++) {
+            int epochDay = in.getInt();
+            Totals totals = Totals.read(in);
+            LocalDate date = LocalDate.ofEpochDay(epochDay);
+            aggregates.byDay.put(epochDay, totals);
+            aggregates.byMonth.computeIfAbsent(monthKey(date.getYear(), date.getMonthValue()), k -> new Totals())
+                    .add(totals);
+            aggregates.byYear.computeIfAbsent(date.getYear(), k -> new Totals()).add(totals);
+            aggregates.overall.add(totals);
+        }
+        int vendors = in.getInt();
+        for (int i = 0; i < vendors; i++) {
+            aggregates.byVendor.add(Totals.read(in));
+        }
+        return aggregates;
+    }
+
+    // === QUERIES ===
+
+    public synchronized long getRowCount() {
+        return overall.getCount();
+    }
+
+    // Current balance: the sum of every amount in the ledger
+    public synchronized long getBalanceCents() {
+        return overall.getNetCents();
+    }
+
+    public synchronized Totals getOverall() {
+        return overall.copy();
+    }
+
+    public synchronized Totals getDay(LocalDate date) {
+        return copyOrEmpty(byDay.get((int) date.toEpochDay()));
+    }
+
+    public synchronized Totals getMonth(int year, int month) {
+        return copyOrEmpty(byMonth.get(monthKey(year, month)));
+    }
+
+    public synchronized Totals getYear(int year) {
+        return copyOrEmpty(byYear.get(year));
+    }
+
+    // Totals for every day between the two dates, both inclusive
+    public synchronized Totals getBetween(LocalDate from, LocalDate to) {
+        Totals sum = new Totals();
+        if (!from.isAfter(to)) {
+            for (Totals day : byDay.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).values()) {
+                sum.add(day);
+            }
+        }
+        return sum;
+    }
+
+    // Totals for one vendor, by its dictionary id (see TransactionStore.getVendors())
+    public synchronized Totals getVendor(int vendorId) {
+        return vendorId >= 0 && vendorId < byVendor.size() ? byVendor.get(vendorId).copy() : new Totals();
+    }
+
+    private static Totals copyOrEmpty(Totals totals) {
+        return totals == null ? new Totals() : totals.copy();
+    }
+
+    // === CONSISTENCY CHECK ===
+    // Recomputes everything with a full scan of the store and lists any total that disagrees.
+    // An empty list means the running totals are exact.
+    public synchronized List<String> verify(TransactionStore store) {
+        LedgerAggregates expected = build(store);
+        List<String> problems = new ArrayList<>();
+        if (!overall.equals(expected.overall)) {
+            problems.add("overall: running " + overall + ", scanned " + expected.overall);
+        }
+        compare("day", byDay, expected.byDay, problems);
+        compare("month", byMonth, expected.byMonth, problems);
+        compare("year", byYear, expected.byYear, problems);
+        for (int id = 0; id < Math.max(byVendor.size(), expected.byVendor.size()); id++) {
+            Totals running = id < byVendor.size() ? byVendor.get(id) : new Totals();
+            Totals scanned = id < expected.byVendor.size() ? expected.byVendor.get(id) : new Totals();
+            if (!running.equals(scanned)) {
+                problems.add("vendor " + id + ": running " + running + ", scanned " + scanned);
+            }
+        }
+        return problems;
+    }
+
+    private static void compare(String label, Map<Integer, Totals> running, Map<Integer, Totals> scanned,
+                                List<String> problems) {
+        if (!running.equals(scanned)) {
+            problems.add(label + " totals differ: running " + running.size() + " groups, scanned " + scanned.size());
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+
+// Converts the ledger's text dates and times to and from compact ints.
+// Dates are stored as epoch days (days since 1970-01-01), times as seconds since midnight.
+public class LedgerDates {
+
+    // Returned by the parsers when the text is not a valid date or time
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private static final int[] DAYS_BEFORE_MONTH = {0, 31, 59, 90, 120, 151, 181, 212, 243, 273, 304, 334};
+
+    private LedgerDates() {
+    }
+
+    // === DATES (YYYY-MM-DD) ===
+
+    public static int parseEpochDay(CharSequence text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return INVALID;
+        }
+        return toEpochDay(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10));
+    }
+
+    public static int parseEpochDay(byte[] text, int from, int to) {
+        if (to - from != 10 || text[from + 4] != '-' || text[from + 7] != '-') {
+            return INVALID;
+        }
+        return toEpochDay(digits(text, from, from + 4), digits(text, from + 5, from + 7),
+                digits(text, from + 8, from + 10));
+    }
+
+    // Same arithmetic as LocalDate.toEpochDay(), without creating a LocalDate
+    public static int toEpochDay(int year, int month, int day) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        long y = year;
+        long days = 365 * y + (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400; // Days before Jan 1 of year
+        days += DAYS_BEFORE_MONTH[month - 1] + day - 1;
+        if (month > 2 && isLeapYear(year)) {
+            days++;
+        }
+        return (int) (days - 719_528); // 719,528 days from 0000-01-01 to 1970-01-01
+    }
+
+    public static String formatDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    // Appends the date as YYYY-MM-DD without creating any objects (years 0 to 9999)
+    public static void appendDate(StringBuilder out, int epochDay) {
+        // Civil-from-days conversion over 400-year eras, counted from 0000-03-01
+        long z = epochDay + 719_468L;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153; // 0 = March
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        out.append((char) ('0' + year / 1000 % 10)).append((char) ('0' + year / 100 % 10))
+                .append((char) ('0' + year / 10 % 10)).append((char) ('0' + year % 10)).append('-');
+        appendTwoDigits(out, month);
+        out.append('-');
+        appendTwoDigits(out, day);
+    }
+
+    // === TIMES (HH:MM:SS or HH:MM) ===
+
+    public static int parseSecondOfDay(CharSequence text) {
+        int length = text.length();
+        if ((length != 8 && length != 5) || text.charAt(2) != ':' || (length == 8 && text.charAt(5) != ':')) {
+            return INVALID;
+        }
+        return toSecondOfDay(digits(text, 0, 2), digits(text, 3, 5), length == 8 ? digits(text, 6, 8) : 0);
+    }
+
+    public static int parseSecondOfDay(byte[] text, int from, int to) {
+        int length = to - from;
+        if ((length != 8 && length != 5) || text[from + 2] != ':' || (length == 8 && text[from + 5] != ':')) {
+            return INVALID;
+        }
+        return toSecondOfDay(digits(text, from, from + 2), digits(text, from + 3, from + 5),
+                length == 8 ? digits(text, from + 6, from + 8) : 0);
+    }
+
+    private static int toSecondOfDay(int hour, int minute, int second) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        return hour * 3600 + minute * 60 + second;
+    }
+
+    // Appends the time as HH:MM:SS without creating any objects
+    public static void appendTime(StringBuilder out, int secondOfDay) {
+        appendTwoDigits(out, secondOfDay / 3600);
+        out.append(':');
+        appendTwoDigits(out, secondOfDay / 60 % 60);
+        out.append(':');
+        appendTwoDigits(out, secondOfDay % 60);
+    }
+
+    public static String formatTime(int secondOfDay) {
+        char[] out = new char[8];
+        twoDigits(out, 0, secondOfDay / 3600);
+        out[2] = ':';
+        twoDigits(out, 3, secondOfDay / 60 % 60);
+        out[5] = ':';
+        twoDigits(out, 6, secondOfDay % 60);
+        return new String(out);
+    }
+
+    // === HELPERS ===
+
+    public static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // Reads a run of ASCII digits as a number, or -1 if anything else is in the way
+    private static int digits(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int digits(byte[] text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            byte b = text[i];
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+
+    private static void twoDigits(char[] out, int at, int value) {
+        out[at] = (char) ('0' + value / 10);
+        out[at + 1] = (char) ('0' + value % 10);
+    }
+}
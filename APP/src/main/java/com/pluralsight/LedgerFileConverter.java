@@ -0,0 +1,62 @@
+package com.pluralsight;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Converts a ledger between the pipe-delimited CSV text format and the binary format (BinaryLedgerFile).
+// Usage: java com.pluralsight.LedgerFileConverter <input> <output>
+// The direction is picked from the input: a binary ledger becomes CSV, anything else is read as CSV.
+// Exits with status 1 if the arguments are wrong or the conversion fails, so scripts can tell.
+public class LedgerFileConverter {
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: LedgerFileConverter <input> <output>");
+            System.exit(1);
+        }
+        try {
+            Path input = Path.of(args[0]);
+            Path output = Path.of(args[1]);
+            if (BinaryLedgerFile.isBinaryLedger(input)) {
+                int rows = binaryToCsv(input, output);
+                System.out.println("Wrote " + rows + " transactions to CSV file " + output);
+            } else {
+                int rows = csvToBinary(input, output);
+                System.out.println("Wrote " + rows + " transactions to binary file " + output);
+            }
+        } catch (IOException e) {
+            System.out.println("Conversion failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // === CSV -> BINARY ===
+    // Malformed CSV lines are reported and left out, the same way Ledger treats them on load
+    public static int csvToBinary(Path csv, Path binary) throws IOException {
+        TransactionLoader.LoadResult result = TransactionLoader.load(csv);
+        for (TransactionLoader.MalformedLine bad : result.getMalformedLines()) {
+            System.out.println("Skipped " + bad);
+        }
+        BinaryLedgerFile.write(result.getStore(), binary);
+        return result.getStore().size();
+    }
+
+    // === BINARY -> CSV ===
+    // Formats each row straight from the columns into one reused buffer (no Transactions or String per row)
+    public static int binaryToCsv(Path binary, Path csv) throws IOException {
+        TransactionStore store = BinaryLedgerFile.read(binary);
+        StringBuilder line = new StringBuilder(128);
+        try (BufferedWriter out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            for (int row = 0; row < store.size(); row++) {
+                line.setLength(0);
+                store.appendRow(row, line);
+                out.append(line);
+                out.newLine();
+            }
+        }
+        return store.size();
+    }
+}
@@ -0,0 +1,250 @@
+package com.pluralsight;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Timings and counts for one Ledger's hot paths: loading, appending (queued until durable), log syncs,
+// checkpoints, reports and searches, plus rows scanned versus matched, bytes read and written, and how
+// many appends are waiting for the writer.
+// Recording is a couple of System.nanoTime() calls and a few atomic adds, with no allocation and no
+// locks, so it is on by default; setEnabled(false) turns every record call into a single volatile read.
+// Visible over JMX once registered (see register()) and as text from dump().
+public class LedgerMetrics implements LedgerMetricsMXBean {
+
+    // === LATENCIES ===
+    private final LatencyHistogram load = new LatencyHistogram();
+    private final LatencyHistogram append = new LatencyHistogram();     // Queued until synced to the log
+    private final LatencyHistogram logSync = new LatencyHistogram();
+    private final LatencyHistogram checkpoint = new LatencyHistogram();
+    private final LatencyHistogram report = new LatencyHistogram();
+    private final LatencyHistogram search = new LatencyHistogram();
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+
+    // === COUNTERS ===
+    private final AtomicLong rowsScanned = new AtomicLong();  // Rows a query looked at
+    private final AtomicLong rowsMatched = new AtomicLong();  // Rows it returned (or skipped for paging)
+    private final AtomicLong bytesRead = new AtomicLong();    // CSV, snapshot and log bytes loaded
+    private final AtomicLong bytesWritten = new AtomicLong(); // Log records, checkpoint copies, snapshots
+    private final AtomicLong peakQueueDepth = new AtomicLong();
+
+    private final IntSupplier queueDepth;
+    private final QueryResultCache resultCache;
+    private volatile boolean enabled = true;
+
+    // === CONSTRUCTOR ===
+    // queueDepth reports how many appends are waiting for the writer right now; resultCache may be null
+    public LedgerMetrics(IntSupplier queueDepth, QueryResultCache resultCache) {
+        this.queueDepth = queueDepth;
+        this.resultCache = resultCache;
+        latencies.put("load", load);
+        latencies.put("append", append);
+        latencies.put("log sync", logSync);
+        latencies.put("checkpoint", checkpoint);
+        latencies.put("report", report);
+        latencies.put("search", search);
+    }
+
+    // === RECORDING (called by Ledger and LedgerWriter) ===
+
+    void recordLoad(long nanos, long bytes) {
+        if (enabled) {
+            load.record(nanos);
+            bytesRead.addAndGet(bytes);
+        }
+    }
+
+    void recordAppend(long nanos) {
+        if (enabled) {
+            append.record(nanos);
+        }
+    }
+
+    void recordQueueDepth(int depth) {
+        if (enabled && depth > peakQueueDepth.get()) {
+            peakQueueDepth.accumulateAndGet(depth, Math::max);
+        }
+    }
+
+    void recordLogSync(long nanos) {
+        if (enabled) {
+            logSync.record(nanos);
+        }
+    }
+
+    void recordCheckpoint(long nanos, long bytes) {
+        if (enabled) {
+            checkpoint.record(nanos);
+            bytesWritten.addAndGet(bytes);
+        }
+    }
+
+    void recordBytesWritten(long bytes) {
+        if (enabled) {
+            bytesWritten.addAndGet(bytes);
+        }
+    }
+
+    void recordReport(long nanos, long scanned, long matched) {
+        if (enabled) {
+            report.record(nanos);
+            rowsScanned.addAndGet(scanned);
+            rowsMatched.addAndGet(matched);
+        }
+    }
+
+    void recordSearch(long nanos, long scanned, long matched) {
+        if (enabled) {
+            search.record(nanos);
+            rowsScanned.addAndGet(scanned);
+            rowsMatched.addAndGet(matched);
+        }
+    }
+
+    // === GETTERS ===
+
+    public LatencyHistogram getLatency(String operation) {
+        return latencies.get(operation);
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned.get();
+    }
+
+    public long getRowsMatched() {
+        return rowsMatched.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public int getAppendQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    public long getPeakAppendQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    // === JMX ===
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("rowsScanned", rowsScanned.get());
+        counters.put("rowsMatched", rowsMatched.get());
+        counters.put("bytesRead", bytesRead.get());
+        counters.put("bytesWritten", bytesWritten.get());
+        counters.put("appendQueueDepth", (long) queueDepth.getAsInt());
+        counters.put("peakAppendQueueDepth", peakQueueDepth.get());
+        if (resultCache != null) {
+            counters.put("cacheHits", resultCache.getHits());
+            counters.put("cacheMisses", resultCache.getMisses());
+            counters.put("cacheEvictions", resultCache.getEvictions());
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Long> getLatenciesMicros() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            String name = entry.getKey().replace(' ', '_');
+            LatencyHistogram h = entry.getValue();
+            values.put(name + ".count", h.getCount());
+            values.put(name + ".mean", h.getMeanNanos() / 1000);
+            values.put(name + ".p50", h.getPercentileNanos(50) / 1000);
+            values.put(name + ".p90", h.getPercentileNanos(90) / 1000);
+            values.put(name + ".p99", h.getPercentileNanos(99) / 1000);
+            values.put(name + ".max", h.getMaxNanos() / 1000);
+        }
+        return values;
+    }
+
+    @Override
+    public String getTextSnapshot() {
+        return dump();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : latencies.values()) {
+            h.reset();
+        }
+        rowsScanned.set(0);
+        rowsMatched.set(0);
+        bytesRead.set(0);
+        bytesWritten.set(0);
+        peakQueueDepth.set(0);
+    }
+
+    // Registers with the platform MBean server as com.pluralsight:type=Ledger,name=<name>
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.pluralsight:type=Ledger,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    // === TEXT SNAPSHOT ===
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%-11s %8s %10s %10s %10s %10s %10s%n",
+                "Latency", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            out.append(String.format("%-11s %8d %10s %10s %10s %10s %10s%n", entry.getKey(), h.getCount(),
+                    duration(h.getMeanNanos()), duration(h.getPercentileNanos(50)),
+                    duration(h.getPercentileNanos(90)), duration(h.getPercentileNanos(99)),
+                    duration(h.getMaxNanos())));
+        }
+        long scanned = rowsScanned.get();
+        long matched = rowsMatched.get();
+        out.append(String.format("Rows scanned: %,d, matched: %,d (%.1f%% of scanned)%n", scanned, matched,
+                scanned == 0 ? 0.0 : matched * 100.0 / scanned));
+        out.append(String.format("Bytes read: %,d, written: %,d%n", bytesRead.get(), bytesWritten.get()));
+        out.append(String.format("Append queue: %d waiting now, peak %d%n", queueDepth.getAsInt(),
+                peakQueueDepth.get()));
+        if (resultCache != null) {
+            out.append(String.format("Query cache: %,d hits, %,d misses, %,d evictions, %d entries%n",
+                    resultCache.getHits(), resultCache.getMisses(), resultCache.getEvictions(),
+                    resultCache.getEntryCount()));
+        }
+        if (!enabled) {
+            out.append("(recording is switched off)").append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    // e.g. "850 ns", "12.4 us", "3.1 ms", "2.05 s"
+    private static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + " ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+        return String.format("%.2f s", nanos / 1e9);
+    }
+}
@@ -0,0 +1,23 @@
+package com.pluralsight;
+
+import java.util.Map;
+
+// What LedgerMetrics shows over JMX (e.g. in JConsole or VisualVM, under com.pluralsight)
+public interface LedgerMetricsMXBean {
+
+    // Rows scanned and matched, bytes read and written, append queue depth, query cache counters
+    Map<String, Long> getCounters();
+
+    // "<operation>.<count|mean|p50|p90|p99|max>" in microseconds (count is a plain count)
+    Map<String, Long> getLatenciesMicros();
+
+    // The same text as the APP metrics screen
+    String getTextSnapshot();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    // Zeroes every histogram and counter
+    void reset();
+}
@@ -0,0 +1,185 @@
+package com.pluralsight;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Describes which transactions to fetch from a Ledger. Build one with LedgerQuery.builder(),
+// then run it with Ledger.query(...). Every filter is optional; an empty query matches every row.
+public class LedgerQuery {
+
+    // === FILTERS ===
+    private final int fromDay;                // Inclusive epoch day, Integer.MIN_VALUE = no lower bound
+    private final int toDay;                  // Inclusive epoch day, Integer.MAX_VALUE = no upper bound
+    private final long minCents;              // Inclusive, Long.MIN_VALUE = no lower bound
+    private final long maxCents;              // Inclusive, Long.MAX_VALUE = no upper bound
+    private final String vendorKeyword;       // Case-insensitive "contains", null = any vendor
+    private final String descriptionKeyword;  // Case-insensitive "contains", null = any description
+    private final boolean newestFirst;        // Result order: false = file order, true = reversed
+
+    private LedgerQuery(Builder b) {
+        this.fromDay = b.fromDay;
+        this.toDay = b.toDay;
+        this.minCents = b.minCents;
+        this.maxCents = b.maxCents;
+        this.vendorKeyword = b.vendorKeyword;
+        this.descriptionKeyword = b.descriptionKeyword;
+        this.newestFirst = b.newestFirst;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // === GETTERS ===
+
+    public int getFromDay() {
+        return fromDay;
+    }
+
+    public int getToDay() {
+        return toDay;
+    }
+
+    public long getMinCents() {
+        return minCents;
+    }
+
+    public long getMaxCents() {
+        return maxCents;
+    }
+
+    public String getVendorKeyword() {
+        return vendorKeyword;
+    }
+
+    public String getDescriptionKeyword() {
+        return descriptionKeyword;
+    }
+
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+
+    public boolean hasDateFilter() {
+        return fromDay != Integer.MIN_VALUE || toDay != Integer.MAX_VALUE;
+    }
+
+    public boolean hasAmountFilter() {
+        return minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+    }
+
+    // True if a row with these values passes every filter except the keyword ones
+    public boolean matchesDateAndAmount(int epochDay, long cents) {
+        return epochDay >= fromDay && epochDay <= toDay && cents >= minCents && cents <= maxCents;
+    }
+
+    // === EQUALITY ===
+    // Queries with the same filters and order match the same rows, so a query can key a cache
+    // (see QueryResultCache); running a custom search twice with the same inputs builds equal queries
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof LedgerQuery)) {
+            return false;
+        }
+        LedgerQuery q = (LedgerQuery) other;
+        return fromDay == q.fromDay && toDay == q.toDay && minCents == q.minCents && maxCents == q.maxCents
+                && newestFirst == q.newestFirst && Objects.equals(vendorKeyword, q.vendorKeyword)
+                && Objects.equals(descriptionKeyword, q.descriptionKeyword);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromDay, toDay, minCents, maxCents, vendorKeyword, descriptionKeyword, newestFirst);
+    }
+
+    // === BUILDER ===
+    // Calling the same kind of filter twice narrows it (ranges are intersected, the last keyword wins)
+    public static class Builder {
+        private int fromDay = Integer.MIN_VALUE;
+        private int toDay = Integer.MAX_VALUE;
+        private long minCents = Long.MIN_VALUE;
+        private long maxCents = Long.MAX_VALUE;
+        private String vendorKeyword;
+        private String descriptionKeyword;
+        private boolean newestFirst;
+
+        // Transactions on or after this date (null = no lower bound)
+        public Builder from(LocalDate date) {
+            if (date != null) {
+                fromDay = Math.max(fromDay, (int) date.toEpochDay());
+            }
+            return this;
+        }
+
+        // Transactions on or before this date (null = no upper bound)
+        public Builder to(LocalDate date) {
+            if (date != null) {
+                toDay = Math.min(toDay, (int) date.toEpochDay());
+            }
+            return this;
+        }
+
+        public Builder between(LocalDate from, LocalDate to) {
+            return from(from).to(to);
+        }
+
+        // Amount between the two values in cents, both inclusive
+        public Builder amountBetweenCents(long min, long max) {
+            minCents = Math.max(minCents, min);
+            maxCents = Math.min(maxCents, max);
+            return this;
+        }
+
+        // Exactly this many cents
+        public Builder amountEqualsCents(long cents) {
+            return amountBetweenCents(cents, cents);
+        }
+
+        // Exactly this amount in dollars; an amount with fractions of a cent can't match any row
+        public Builder amountEquals(double amount) {
+            long cents = Money.fromDouble(amount);
+            if (Money.toDouble(cents) != amount) {
+                return amountBetweenCents(1, 0); // Empty range
+            }
+            return amountEqualsCents(cents);
+        }
+
+        // Positive amounts only
+        public Builder deposits() {
+            return amountBetweenCents(1, Long.MAX_VALUE);
+        }
+
+        // Negative amounts only
+        public Builder payments() {
+            return amountBetweenCents(Long.MIN_VALUE, -1);
+        }
+
+        // Blank or null keywords are ignored, matching customSearch's "leave blank" behaviour
+        public Builder vendorContains(String keyword) {
+            if (keyword != null && !keyword.isEmpty()) {
+                vendorKeyword = keyword;
+            }
+            return this;
+        }
+
+        public Builder descriptionContains(String keyword) {
+            if (keyword != null && !keyword.isEmpty()) {
+                descriptionKeyword = keyword;
+            }
+            return this;
+        }
+
+        // Most recent rows first (reverse file order), as the ledger screens show them
+        public Builder newestFirst() {
+            newestFirst = true;
+            return this;
+        }
+
+        public LedgerQuery build() {
+            return new LedgerQuery(this);
+        }
+    }
+}
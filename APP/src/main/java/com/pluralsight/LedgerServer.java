@@ -0,0 +1,382 @@
+package com.pluralsight;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves a Ledger over HTTP on the loopback interface, for scripts and other programs (see APP --server).
+// Uses the JDK's built-in HttpServer, so nothing else has to be installed or running.
+//
+//   POST /transactions    body: one or more rows in the ledger's own "date|time|description|vendor|amount"
+//                         form; all are appended, or none if any row is malformed (400, one error per line)
+//   GET  /transactions    matching rows as NDJSON (one JSON object per line), streamed as they are found;
+//                         filters: from, to (YYYY-MM-DD), vendor, description, min, max, amount (dollars),
+//                         type=deposits|payments, order=newest, offset, limit
+//   GET  /aggregates      balance and totals as one JSON line; for the whole ledger, or one of
+//                         month=YYYY-MM, year=YYYY, vendor=name, or from/to
+//   GET  /metrics         the ledger's metrics snapshot as text (see LedgerMetrics)
+//
+// Each request runs on its own virtual thread when the JVM has them (Java 21+), otherwise on a fixed pool.
+// An append request waits until its rows are durable; appends from concurrent requests share the
+// writer's group commit (see LedgerWriter), so many clients cost one log sync per batch, not one each.
+public class LedgerServer implements Closeable {
+
+    public static final int DEFAULT_PORT = 8080;
+
+    // Handler threads mostly wait for a group commit, so the fallback pool is much larger than the core count
+    private static final int FALLBACK_THREADS = 64;
+    private static final int MAX_BODY_BYTES = 64 << 20;
+
+    // Open ends of a from/to range for /aggregates
+    private static final LocalDate FIRST_DAY = LocalDate.of(1, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(9999, 12, 31);
+
+    private final Ledger ledger;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // === CONSTRUCTOR ===
+    // Binds to 127.0.0.1 on the given port (0 picks a free one, see getPort()); call start() to begin serving
+    public LedgerServer(Ledger ledger, int port) throws IOException {
+        // The response headers and body go out as separate small writes; without TCP_NODELAY the body
+        // waits for the client's delayed ACK, adding ~40 ms to every request. Read once, by the first server.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.ledger = ledger;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/transactions", this::handleTransactions);
+        server.createContext("/aggregates", this::handleAggregates);
+        server.createContext("/metrics", this::handleMetrics);
+    }
+
+    // One virtual thread per request if this JVM has them; looked up by reflection so the app still
+    // compiles and runs on Java 17, where a fixed pool of platform threads is used instead
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtual.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, task -> {
+                Thread thread = new Thread(task, "ledger-http-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // === CLOSE ===
+    // Stops accepting connections, gives requests in progress a second to finish, then stops the threads.
+    // The ledger stays open; closing it is up to the caller.
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // === /transactions ===
+
+    private void handleTransactions(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            try {
+                if ("POST".equals(exchange.getRequestMethod())) {
+                    append(exchange);
+                } else if ("GET".equals(exchange.getRequestMethod())) {
+                    query(exchange);
+                } else {
+                    sendError(exchange, 405, "use GET or POST");
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                sendError(exchange, 400, e.getMessage());
+            }
+        }
+    }
+
+    // Parses the whole body first, so a bad row rejects the request before anything is stored
+    private void append(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            sendError(exchange, 413, "request body is larger than " + MAX_BODY_BYTES + " bytes");
+            return;
+        }
+        TransactionLoader.LoadResult parsed = TransactionLoader.parse(body);
+        if (!parsed.getMalformedLines().isEmpty()) {
+            StringBuilder errors = new StringBuilder();
+            for (TransactionLoader.MalformedLine bad : parsed.getMalformedLines()) {
+                errors.append("{\"line\":").append(bad.getLineNumber()).append(",\"error\":");
+                appendJsonString(errors, bad.getReason());
+                errors.append("}\n");
+            }
+            send(exchange, 400, errors);
+            return;
+        }
+
+        TransactionStore rows = parsed.getStore();
+        if (rows.size() > 0) {
+            try {
+                ledger.addAllAsync(rows).join(); // Returns once this request's rows are in the log on disk
+            } catch (CompletionException e) {
+                sendError(exchange, 500, "could not save: " + e.getCause().getMessage());
+                return;
+            }
+        }
+        send(exchange, 200, "{\"appended\":" + rows.size() + "}\n");
+    }
+
+    // Streams the matches straight from the columns; the response is chunked, so the first rows go out
+    // before the last ones are found
+    private void query(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParameters(exchange);
+        LedgerQuery q = toQuery(params);
+        Page page = new Page(intParameter(params, "offset", 0), intParameter(params, "limit", Integer.MAX_VALUE));
+
+        long start = System.nanoTime();
+        QueryCursor cursor = ledger.query(q);
+        TransactionStore store = cursor.getStore();
+        int skipped = 0;
+        while (skipped < page.getOffset() && cursor.nextRow() >= 0) {
+            skipped++;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        int written = 0;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            StringBuilder line = new StringBuilder(160); // Reused for every row
+            int row;
+            while (written < page.getLimit() && (row = cursor.nextRow()) >= 0) {
+                line.setLength(0);
+                appendRow(store, row, line);
+                out.append(line);
+                written++;
+            }
+        }
+        ledger.getMetrics().recordReport(System.nanoTime() - start, cursor.getRowsExamined(), skipped + written);
+    }
+
+    static LedgerQuery toQuery(Map<String, String> params) {
+        LedgerQuery.Builder q = LedgerQuery.builder()
+                .from(dateParameter(params, "from"))
+                .to(dateParameter(params, "to"))
+                .vendorContains(params.get("vendor"))
+                .descriptionContains(params.get("description"));
+        long min = centsParameter(params, "min", Long.MIN_VALUE);
+        long max = centsParameter(params, "max", Long.MAX_VALUE);
+        q.amountBetweenCents(min, max);
+        String amount = params.get("amount");
+        if (amount != null && !amount.isEmpty()) {
+            long cents = centsParameter(params, "amount", 0);
+            q.amountBetweenCents(cents, cents);
+        }
+        String type = params.get("type");
+        if ("deposits".equals(type)) {
+            q.deposits();
+        } else if ("payments".equals(type)) {
+            q.payments();
+        } else if (type != null) {
+            throw new IllegalArgumentException("type must be deposits or payments");
+        }
+        String order = params.get("order");
+        if ("newest".equals(order)) {
+            q.newestFirst();
+        } else if (order != null && !"file".equals(order)) {
+            throw new IllegalArgumentException("order must be newest or file");
+        }
+        return q.build();
+    }
+
+    // {"date":"2025-03-01","time":"10:15:00","description":"...","vendor":"...","amount":-176.67}
+    static void appendRow(TransactionStore store, int row, StringBuilder out) {
+        out.append("{\"date\":\"");
+        LedgerDates.appendDate(out, store.getEpochDay(row));
+        out.append("\",\"time\":\"");
+        LedgerDates.appendTime(out, store.getSecondOfDay(row));
+        out.append("\",\"description\":");
+        appendJsonString(out, store.getDescription(row));
+        out.append(",\"vendor\":");
+        appendJsonString(out, store.getVendor(row));
+        out.append(",\"amount\":");
+        Money.appendCents(out, store.getAmountCents(row));
+        out.append("}\n");
+    }
+
+    // === /aggregates ===
+
+    private void handleAggregates(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "use GET");
+                return;
+            }
+            try {
+                Map<String, String> params = queryParameters(exchange);
+                LedgerAggregates aggregates = ledger.getAggregates();
+                LedgerAggregates.Totals totals;
+                if (params.containsKey("month")) {
+                    String[] yearMonth = params.get("month").split("-");
+                    if (yearMonth.length != 2) {
+                        throw new IllegalArgumentException("month must look like 2025-03");
+                    }
+                    totals = aggregates.getMonth(Integer.parseInt(yearMonth[0]), Integer.parseInt(yearMonth[1]));
+                } else if (params.containsKey("year")) {
+                    totals = aggregates.getYear(Integer.parseInt(params.get("year")));
+                } else if (params.containsKey("vendor")) {
+                    totals = ledger.getVendorTotals(params.get("vendor"));
+                } else if (params.containsKey("from") || params.containsKey("to")) {
+                    LocalDate from = dateParameter(params, "from");
+                    LocalDate to = dateParameter(params, "to");
+                    totals = aggregates.getBetween(from == null ? FIRST_DAY : from, to == null ? LAST_DAY : to);
+                } else {
+                    totals = aggregates.getOverall();
+                }
+
+                StringBuilder json = new StringBuilder(192);
+                json.append("{\"balance\":");
+                Money.appendCents(json, aggregates.getBalanceCents());
+                json.append(",\"count\":").append(totals.getCount());
+                json.append(",\"depositCount\":").append(totals.getDepositCount());
+                json.append(",\"deposits\":");
+                Money.appendCents(json, totals.getDepositCents());
+                json.append(",\"paymentCount\":").append(totals.getPaymentCount());
+                json.append(",\"payments\":");
+                Money.appendCents(json, totals.getPaymentCents());
+                json.append(",\"net\":");
+                Money.appendCents(json, totals.getNetCents());
+                json.append("}\n");
+                send(exchange, 200, json);
+            } catch (IllegalArgumentException | DateTimeParseException e) { // NumberFormatException included
+                sendError(exchange, 400, e.getMessage());
+            }
+        }
+    }
+
+    // === /metrics ===
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            byte[] text = ledger.getMetrics().dump().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, text.length);
+            exchange.getResponseBody().write(text);
+        }
+    }
+
+    // === PARAMETERS ===
+
+    static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static LocalDate dateParameter(Map<String, String> params, String name) {
+        String value = params.get(name);
+        return value == null || value.isEmpty() ? null : LocalDate.parse(value);
+    }
+
+    private static int intParameter(Map<String, String> params, String name, int absent) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return absent;
+        }
+        int number = Integer.parseInt(value);
+        if (number < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+        return number;
+    }
+
+    // Dollars, e.g. "-176.67" or "20"
+    private static long centsParameter(Map<String, String> params, String name, long absent) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return absent;
+        }
+        long cents = Money.parseCents(value);
+        if (cents == Money.INVALID) {
+            throw new IllegalArgumentException(name + " is not an amount: " + value);
+        }
+        return cents;
+    }
+
+    // === JSON OUTPUT ===
+
+    static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append("\\u00");
+                out.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendJsonString(json, message == null ? "bad request" : message);
+        json.append("}\n");
+        send(exchange, status, json);
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence ndjson) throws IOException {
+        byte[] body = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
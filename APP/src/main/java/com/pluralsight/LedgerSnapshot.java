@@ -0,0 +1,304 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Everything a Ledger builds from its CSV file, saved in a form that loads with bulk array copies
+// instead of parsing: the columns and dictionaries, the date index, both substring indexes and the totals.
+//
+// Layout (all numbers big-endian):
+//   header:  "LDGS" | version (int) | CSV length (long) | CRC32 of the last 64 KB of those bytes (int)
+//            | CSV line count (long)
+//   body:    malformed lines, store, date index, vendor index, description index, aggregates
+//   trailer: CRC32 of everything before it (int)
+//
+// The snapshot describes the first `CSV length` bytes of the ledger file. It is only used if the file is still
+// at least that long and the last 64 KB of those bytes are unchanged, which catches the file being replaced,
+// cut short or edited near its end, while keeping startup independent of the file's size (a same-length edit
+// further back goes unnoticed). Rows added to the CSV after it are parsed and indexed as usual.
+public class LedgerSnapshot {
+
+    private static final byte[] MAGIC = {'L', 'D', 'G', 'S'};
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 28;
+    private static final int CHECKED_CSV_BYTES = 64 * 1024;
+
+    private final long csvLength;
+    private final long csvLines;
+    private final TransactionStore store;
+    private final DateIndex dateIndex;
+    private final SubstringIndex vendorIndex;
+    private final SubstringIndex descriptionIndex;
+    private final LedgerAggregates aggregates;
+    private final List<TransactionLoader.MalformedLine> malformedLines;
+
+    LedgerSnapshot(long csvLength, long csvLines, TransactionStore store, DateIndex dateIndex,
+                   SubstringIndex vendorIndex, SubstringIndex descriptionIndex, LedgerAggregates aggregates,
+                   List<TransactionLoader.MalformedLine> malformedLines) {
+        this.csvLength = csvLength;
+        this.csvLines = csvLines;
+        this.store = store;
+        this.dateIndex = dateIndex;
+        this.vendorIndex = vendorIndex;
+        this.descriptionIndex = descriptionIndex;
+        this.aggregates = aggregates;
+        this.malformedLines = malformedLines;
+    }
+
+    // The snapshot file that belongs to a ledger file
+    public static Path pathFor(Path ledgerFile) {
+        return ledgerFile.resolveSibling(ledgerFile.getFileName() + ".snapshot");
+    }
+
+    // === GETTERS ===
+
+    // How many bytes of the CSV file the snapshot covers (the rest still has to be parsed)
+    public long getCsvLength() {
+        return csvLength;
+    }
+
+    public long getCsvLines() {
+        return csvLines;
+    }
+
+    public TransactionStore getStore() {
+        return store;
+    }
+
+    public DateIndex getDateIndex() {
+        return dateIndex;
+    }
+
+    public SubstringIndex getVendorIndex() {
+        return vendorIndex;
+    }
+
+    public SubstringIndex getDescriptionIndex() {
+        return descriptionIndex;
+    }
+
+    public LedgerAggregates getAggregates() {
+        return aggregates;
+    }
+
+    public List<TransactionLoader.MalformedLine> getMalformedLines() {
+        return malformedLines;
+    }
+
+    // === WRITE ===
+    // Saves the snapshot next to the CSV file. Written to a temporary file and renamed, so a crash
+    // leaves the old snapshot (or none), never a partial one.
+    public void write(Path csv) throws IOException {
+        Path file = pathFor(csv);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Output out = new Output(temp)) {
+            out.putBytes(MAGIC);
+            out.putInt(VERSION);
+            out.putLong(csvLength);
+            out.putInt(tailChecksum(csv, csvLength));
+            out.putLong(csvLines);
+            out.putInt(malformedLines.size());
+            for (TransactionLoader.MalformedLine bad : malformedLines) {
+                out.putLong(bad.getLineNumber());
+                out.putString(bad.getText());
+                out.putString(bad.getReason());
+            }
+            store.writeSnapshot(out);
+            dateIndex.writeSnapshot(out);
+            vendorIndex.writeSnapshot(out);
+            descriptionIndex.writeSnapshot(out);
+            aggregates.writeSnapshot(out);
+            out.finish();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // === READ ===
+    // Returns null if there is no snapshot, or if the CSV bytes it covers have changed since it was written.
+    // Throws IOException if the snapshot itself is damaged.
+    public static LedgerSnapshot read(Path csv) throws IOException {
+        Path file = pathFor(csv);
+        if (!Files.exists(file) || !Files.exists(csv)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a usable ledger snapshot");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(file + " is not a ledger snapshot");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported version " + version);
+            }
+            long csvLength = in.getLong();
+            int csvChecksum = in.getInt();
+            long csvLines = in.getLong();
+            if (Files.size(csv) < csvLength || tailChecksum(csv, csvLength) != csvChecksum) {
+                return null; // The CSV was rewritten or edited since; the snapshot no longer describes it
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().position(0).limit((int) size - Integer.BYTES));
+            if ((int) crc.getValue() != in.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Checksum mismatch in " + file);
+            }
+
+            List<TransactionLoader.MalformedLine> malformed = new ArrayList<>();
+            int malformedCount = in.getInt();
+            for (int i = 0; i < malformedCount; i++) {
+                malformed.add(new TransactionLoader.MalformedLine(in.getLong(), getString(in), getString(in)));
+            }
+            TransactionStore store = TransactionStore.readSnapshot(in);
+            DateIndex dateIndex = DateIndex.readSnapshot(in);
+            SubstringIndex vendorIndex = SubstringIndex.readSnapshot(in, store.getVendors());
+            SubstringIndex descriptionIndex = SubstringIndex.readSnapshot(in, store.getDescriptions());
+            LedgerAggregates aggregates = LedgerAggregates.readSnapshot(in);
+            return new LedgerSnapshot(csvLength, csvLines, store, dateIndex, vendorIndex, descriptionIndex,
+                    aggregates, malformed);
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged ledger snapshot " + file, e); // e.g. a count that runs past the end
+        }
+    }
+
+    // CRC32 of the last CHECKED_CSV_BYTES of the first `length` bytes of a file (all of them if fewer)
+    private static int tailChecksum(Path file, long length) throws IOException {
+        long start = Math.max(0, length - CHECKED_CSV_BYTES);
+        ByteBuffer tail = ByteBuffer.allocate((int) (length - start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, start + tail.position()) < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(tail.flip());
+        return (int) crc.getValue();
+    }
+
+    // === BULK READS (used by each part's readSnapshot) ===
+
+    static void getInts(ByteBuffer in, int[] into, int count) {
+        in.asIntBuffer().get(into, 0, count);
+        in.position(in.position() + count * Integer.BYTES);
+    }
+
+    static void getLongs(ByteBuffer in, long[] into, int count) {
+        in.asLongBuffer().get(into, 0, count);
+        in.position(in.position() + count * Long.BYTES);
+    }
+
+    static String getString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // === BUFFERED WRITER (used by each part's writeSnapshot) ===
+    // Fills a 1 MB buffer, checksumming each buffer-full as it goes to the file
+    static class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        private final CRC32 crc = new CRC32();
+
+        Output(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+        }
+
+        void putInt(int value) throws IOException {
+            room(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            room(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (int done = 0; done < bytes.length; ) {
+                room(1);
+                int n = Math.min(bytes.length - done, buffer.remaining());
+                buffer.put(bytes, done, n);
+                done += n;
+            }
+        }
+
+        void putString(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            putInt(utf8.length);
+            putBytes(utf8);
+        }
+
+        // The first `count` values of the array, copied in bulk
+        void putInts(int[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                room(Integer.BYTES);
+                int n = Math.min(count - done, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                done += n;
+            }
+        }
+
+        void putLongs(long[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                room(Long.BYTES);
+                int n = Math.min(count - done, buffer.remaining() / Long.BYTES);
+                buffer.asLongBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * Long.BYTES);
+                done += n;
+            }
+        }
+
+        private void room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            crc.update(buffer.array(), 0, buffer.position());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        // Appends the trailer checksum and syncs the file
+        void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            channel.force(true);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
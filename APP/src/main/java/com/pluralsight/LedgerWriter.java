@@ -0,0 +1,378 @@
+package com.pluralsight;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Appends records in batches (group commit) to the ledger's write-ahead log, and every so often
+// copies the logged records into the CSV file (a checkpoint) so the log stays short.
+// Callers queue a record and get back a future that completes once the record is in the log on disk.
+// A future that fails with an I/O error means the outcome is unknown, not that nothing was written: records
+// that reached the log before the error are kept and copied into the CSV file at the next checkpoint.
+// Only a record turned away before it is queued (too long, or the writer is closed) is known not to be saved.
+//
+// Expects the ledger to have been recovered first (see Ledger.loadTransactions), so the CSV file
+// ends exactly where the last checkpoint left it.
+public class LedgerWriter implements Closeable {
+
+    // Records waiting to be written (one, or a whole batch from addAllAsync), plus the handle their caller
+    // is waiting on
+    private static class PendingAppend {
+        final byte[][] records; // CSV lines in UTF-8, already checked against the log's size limit
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final long enqueuedNanos = System.nanoTime(); // For the append latency (queued until synced)
+
+        PendingAppend(byte[][] records) {
+            this.records = records;
+        }
+    }
+
+    // Marker that tells the flusher thread to finish up and exit
+    private static final PendingAppend SHUTDOWN = new PendingAppend(null);
+
+    private final GroupCommitPolicy policy;
+    private final LedgerMetrics metrics;
+    private final LinkedBlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Path csvFile;
+    private final Path checkpointFile;
+    private final WriteAheadLog log;
+    private final Thread flusher;
+    private final Runnable afterCheckpoint; // Told after each checkpoint the flusher makes (e.g. to snapshot)
+    private volatile boolean closed = false;   // No more appends accepted (close() called, or the flusher died)
+    private boolean closeStarted = false;       // close() has run once; guarded by `queue`
+
+    // Only touched by the flusher thread (and by the constructor and close(), before and after it runs)
+    private Checkpoint checkpoint;
+    private long sequence;             // Number of the last record written to the log
+    private int sinceCheckpoint = 0;   // Records in the log that are not in the CSV file yet
+    private IOException checkpointFailure;
+
+    // === CONSTRUCTOR ===
+    // Opens the log once and starts the background flusher thread.
+    // Records left in the log by an earlier run are checkpointed into the CSV file straight away.
+    public LedgerWriter(String fileName, GroupCommitPolicy policy) throws IOException {
+        this(fileName, policy, new LedgerMetrics(() -> 0, null));
+    }
+
+    // Same as above, recording append, sync and checkpoint timings into the ledger's metrics
+    public LedgerWriter(String fileName, GroupCommitPolicy policy, LedgerMetrics metrics) throws IOException {
+        this(fileName, policy, metrics, () -> { });
+    }
+
+    // Same, calling afterCheckpoint on the flusher thread each time it has copied the log into the CSV file.
+    // It must return quickly and must not close this writer (hand real work to another thread).
+    LedgerWriter(String fileName, GroupCommitPolicy policy, LedgerMetrics metrics, Runnable afterCheckpoint)
+            throws IOException {
+        this.afterCheckpoint = afterCheckpoint;
+        this.policy = policy;
+        this.metrics = metrics;
+        this.csvFile = Path.of(fileName);
+        this.checkpointFile = Checkpoint.pathFor(csvFile);
+        this.log = WriteAheadLog.open(WriteAheadLog.pathFor(csvFile));
+        try {
+            this.checkpoint = Checkpoint.read(checkpointFile);
+            if (checkpoint == null) {
+                // First run with a log, or the checkpoint file was lost: nothing in the log is in the CSV file
+                // yet (recovery replays all of it), so the checkpoint below copies every record across
+                checkpoint = new Checkpoint(0, csvLength());
+                checkpoint.write(checkpointFile);
+            }
+            this.sequence = Math.max(checkpoint.getLastSequence(), log.getLastSequence());
+            if (sequence > checkpoint.getLastSequence()) {
+                checkpoint();
+            } else if (log.size() > 0) {
+                log.reset(); // Left over from a crash just after a checkpoint; already in the CSV file
+            }
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+        this.flusher = new Thread(this::runFlusher, "ledger-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // === APPEND ===
+    // Queues one record; the returned future completes when the record has been synced to the log.
+    // A record too long for the log fails its own future here and is never queued.
+    public CompletableFuture<Void> append(Transactions t) {
+        return appendAll(new String[]{t.toString()});
+    }
+
+    // Queues many records as one unit: they are written back to back and covered by the same sync,
+    // so a large batch costs one sync instead of one per group of maxBatchSize records
+    public CompletableFuture<Void> appendAll(String[] lines) {
+        byte[][] records = new byte[lines.length][];
+        try {
+            for (int i = 0; i < lines.length; i++) {
+                records[i] = encode(lines[i]);
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return appendRecords(records);
+    }
+
+    // Same as appendAll, for lines the caller has already put through encode()
+    CompletableFuture<Void> appendRecords(byte[][] records) {
+        return enqueue(new PendingAppend(records));
+    }
+
+    // A CSV line as the log stores it; throws if it is longer than the log accepts (1 MB), so that one
+    // oversized description or vendor is turned away up front instead of reaching the flusher
+    static byte[] encode(String line) throws IOException {
+        byte[] record = line.getBytes(StandardCharsets.UTF_8);
+        if (record.length > WriteAheadLog.MAX_PAYLOAD_BYTES) {
+            throw new IOException("Transaction is too long to save (" + record.length + " bytes, limit "
+                    + WriteAheadLog.MAX_PAYLOAD_BYTES + ")");
+        }
+        return record;
+    }
+
+    private CompletableFuture<Void> enqueue(PendingAppend pending) {
+        synchronized (queue) { // Keeps an append from slipping in behind the shutdown marker
+            if (closed) {
+                return CompletableFuture.failedFuture(new IOException("Ledger writer is closed"));
+            }
+            queue.add(pending);
+            metrics.recordQueueDepth(queue.size());
+        }
+        return pending.done;
+    }
+
+    // False once the writer has stopped accepting appends (closed, or the flusher thread stopped)
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    // Appends waiting for the flusher to pick them up
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    // === FLUSHER LOOP ===
+    // Runs the loop below; however it ends, no caller is left waiting on a future that will never complete
+    private void runFlusher() {
+        List<PendingAppend> unsynced = new ArrayList<>();
+        Throwable failure = null;
+        try {
+            flushUntilShutdown(unsynced);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            failOutstanding(unsynced, failure);
+        }
+    }
+
+    // Writes everything that is queued and syncs as soon as the queue is empty, so a caller writing alone waits
+    // for one write and one sync, never for a timer. Callers that arrive while a sync is running queue up and
+    // are covered together by the next one (group commit), so busier moments give bigger batches on their own.
+    // A batch is also cut at maxBatchSize records; a policy with maxLatencyMillis > 0 additionally waits up to
+    // that long for a batch to fill before syncing it.
+    private void flushUntilShutdown(List<PendingAppend> unsynced) {
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMaxLatencyMillis());
+        boolean running = true;
+
+        while (running) {
+            try {
+                PendingAppend next = queue.take(); // Nothing waiting, so block until work arrives
+                long lingerUntil = System.nanoTime() + lingerNanos;
+                int unsyncedRecords = 0;
+
+                // Write whatever has arrived, draining the queue so one sync covers many callers
+                while (next != null && next != SHUTDOWN) {
+                    if (write(next)) {
+                        unsyncedRecords += next.records.length;
+                        unsynced.add(next);
+                    }
+                    if (unsyncedRecords >= policy.getMaxBatchSize()) {
+                        break; // The rest of the queue goes in the next batch
+                    }
+                    next = queue.poll();
+                    if (next == null && lingerNanos > 0) {
+                        long waitNanos = lingerUntil - System.nanoTime();
+                        next = waitNanos > 0 ? queue.poll(waitNanos, TimeUnit.NANOSECONDS) : null;
+                    }
+                }
+                if (next == SHUTDOWN) {
+                    running = false;
+                }
+
+                if (!unsynced.isEmpty()) {
+                    long syncStart = System.nanoTime();
+                    sync();
+                    long synced = System.nanoTime();
+                    metrics.recordLogSync(synced - syncStart);
+                    for (PendingAppend p : unsynced) {
+                        metrics.recordAppend(synced - p.enqueuedNanos);
+                        p.done.complete(null);
+                    }
+                    unsynced.clear();
+                    if (sinceCheckpoint >= policy.getCheckpointRecords()) {
+                        tryCheckpoint();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (IOException e) {
+                // Every caller in the failed batch learns about it through its future. Some of the batch may
+                // already be in the log (and anything still buffered is retried by the next flush), so the
+                // callers are told the outcome is unknown rather than that their records were not saved.
+                IOException unknown = new IOException("Could not confirm that the transactions were saved; "
+                        + "they may or may not be in the ledger file", e);
+                for (PendingAppend p : unsynced) {
+                    p.done.completeExceptionally(unknown);
+                }
+                unsynced.clear();
+            }
+        }
+    }
+
+    // Frames one queued append's records into the log. If the log refuses a record, only that append fails
+    // (returns false) and the flusher carries on with the others; an I/O error is passed on for the whole batch.
+    private boolean write(PendingAppend pending) throws IOException {
+        long bytes = 0;
+        try {
+            for (byte[] record : pending.records) {
+                log.append(sequence + 1, record);
+                sequence++;
+                sinceCheckpoint++;
+                bytes += WriteAheadLog.RECORD_HEADER_BYTES + record.length;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            pending.done.completeExceptionally(new IOException("Could not write transaction to the log", e));
+            return false;
+        } finally {
+            metrics.recordBytesWritten(bytes);
+        }
+    }
+
+    // The flusher is exiting. After a normal shutdown nothing is outstanding; if it was interrupted or hit
+    // an unexpected exception, stop accepting appends and fail every append that was queued or written but
+    // not synced (a written one may still reach the CSV file at the next checkpoint, as the log has it)
+    private void failOutstanding(List<PendingAppend> unsynced, Throwable cause) {
+        synchronized (queue) {
+            closed = true;
+        }
+        IOException stopped = new IOException("Ledger writer stopped", cause);
+        for (PendingAppend p : unsynced) {
+            p.done.completeExceptionally(stopped);
+        }
+        unsynced.clear();
+        PendingAppend p;
+        while ((p = queue.poll()) != null) {
+            if (p != SHUTDOWN) {
+                p.done.completeExceptionally(stopped);
+            }
+        }
+    }
+
+    // === SYNC ===
+    // Pushes buffered records to the OS and, if the policy asks for it, to the storage device
+    private void sync() throws IOException {
+        log.flush();
+        if (policy.isFsync()) {
+            log.force();
+        }
+    }
+
+    // === CHECKPOINT ===
+    // Copies the logged records into the CSV file, then empties the log. Each step is synced before
+    // the next one starts, so a crash at any point is recoverable:
+    //   1. append the records to the CSV file and sync it
+    //   2. write a checkpoint with the new CSV length and the last record's sequence number
+    //   3. empty the log
+    // A crash during 1 leaves extra CSV bytes past the old checkpoint, which recovery cuts off
+    // (the log still has those records); a crash during 3 leaves records the checkpoint already covers.
+    private void checkpoint() throws IOException {
+        long start = System.nanoTime();
+        List<byte[]> records = log.readAfter(checkpoint.getLastSequence());
+        long length;
+        long written;
+        try (FileChannel csv = FileChannel.open(csvFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = csv.size();
+            ByteBuffer last = ByteBuffer.allocate(1);
+            boolean needsNewline = end > 0 && csv.read(last, end - 1) == 1 && last.get(0) != '\n';
+
+            int bytes = needsNewline ? 1 : 0;
+            for (byte[] record : records) {
+                bytes += record.length + 1;
+            }
+            ByteBuffer text = ByteBuffer.allocate(bytes);
+            if (needsNewline) {
+                text.put((byte) '\n'); // Someone edited the file by hand and left the last line open
+            }
+            for (byte[] record : records) {
+                text.put(record).put((byte) '\n');
+            }
+            text.flip();
+            written = text.remaining();
+            while (text.hasRemaining()) {
+                end += csv.write(text, end);
+            }
+            csv.force(false);
+            length = end;
+        }
+        checkpoint = new Checkpoint(sequence, length);
+        checkpoint.write(checkpointFile);
+        log.reset();
+        sinceCheckpoint = 0;
+        metrics.recordCheckpoint(System.nanoTime() - start, written);
+    }
+
+    // Checkpoint failures don't lose anything (the records are still in the log), so the flusher
+    // keeps going and tries again later; the failure is reported by close() if it never succeeds.
+    private void tryCheckpoint() {
+        try {
+            checkpoint();
+            checkpointFailure = null;
+        } catch (IOException e) {
+            checkpointFailure = e;
+            return;
+        }
+        afterCheckpoint.run();
+    }
+
+    private long csvLength() throws IOException {
+        File file = csvFile.toFile();
+        return file.exists() ? file.length() : 0;
+    }
+
+    // === CLOSE ===
+    // Stops accepting appends, lets the flusher write out what is left, checkpoints, then closes the log
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closeStarted) {
+                return;
+            }
+            closeStarted = true;
+            closed = true;
+            queue.add(SHUTDOWN); // Harmless if the flusher already died; join() below returns at once
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (sinceCheckpoint > 0 || checkpointFailure != null) {
+                checkpoint();
+            }
+        } finally {
+            log.close();
+        }
+    }
+}
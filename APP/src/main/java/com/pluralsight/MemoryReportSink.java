@@ -0,0 +1,24 @@
+package com.pluralsight;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps report lines in memory, e.g. to show them elsewhere or to compare two reports
+public class MemoryReportSink implements ReportSink {
+
+    private final List<String> lines = new ArrayList<>();
+
+    @Override
+    public void writeLine(CharSequence line) {
+        lines.add(line.toString());
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is buffered
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+}
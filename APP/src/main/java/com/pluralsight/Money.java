@@ -0,0 +1,124 @@
+package com.pluralsight;
+
+// Money as a whole number of cents in a long: sums and comparisons are exact, unlike a double, where
+// e.g. 0.10 + 0.20 != 0.30. The ledger stores, totals and matches every amount this way.
+// The parser and formatter work on the caller's bytes, chars and StringBuilder, so neither allocates.
+public final class Money {
+
+    // Returned by the parsers for text that is not an amount
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000,
+            10_000_000, 100_000_000, 1_000_000_000, 10_000_000_000L, 100_000_000_000L};
+
+    private Money() {
+    }
+
+    // === PARSE ===
+    // Reads amounts such as " $-176.67" (the ledger file's own form), "1,234.5", "-$20" or "+3".
+    // More than two decimals are rounded half away from zero. Returns the cents, or INVALID.
+    public static long parseCents(CharSequence text) {
+        return parse(null, text, 0, text.length());
+    }
+
+    // Same, straight from the bytes of a line (used by TransactionLoader)
+    public static long parseCents(byte[] text, int from, int to) {
+        return parse(text, null, from, to);
+    }
+
+    // One parser for both forms: exactly one of `bytes` and `chars` is set
+    private static long parse(byte[] bytes, CharSequence chars, int from, int to) {
+        // Trim surrounding whitespace
+        while (from < to && charAt(bytes, chars, from) <= ' ') {
+            from++;
+        }
+        while (to > from && charAt(bytes, chars, to - 1) <= ' ') {
+            to--;
+        }
+
+        boolean negative = false;
+        boolean signSeen = false;
+        long unscaled = 0;
+        int digits = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+        for (int i = from; i < to; i++) {
+            int c = charAt(bytes, chars, i);
+            if (c >= '0' && c <= '9') {
+                if (fractionDigits >= 0) {
+                    if (fractionDigits == 10) {
+                        continue; // Precision beyond this cannot change the cents
+                    }
+                    fractionDigits++;
+                }
+                if (++digits > 17) {
+                    return INVALID; // Too large to hold in cents
+                }
+                unscaled = unscaled * 10 + (c - '0');
+            } else if (c == '$' || c == ',') {
+                if (fractionDigits >= 0) {
+                    return INVALID;
+                }
+            } else if ((c == '-' || c == '+') && !signSeen && digits == 0 && fractionDigits < 0) {
+                signSeen = true;
+                negative = c == '-';
+            } else if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return INVALID;
+            }
+        }
+        if (digits == 0) {
+            return INVALID;
+        }
+
+        // Scale to exactly two decimal places, rounding half away from zero
+        int scale = Math.max(fractionDigits, 0);
+        long cents;
+        if (scale <= 2) {
+            long multiplier = POWERS_OF_TEN[2 - scale];
+            if (unscaled > Long.MAX_VALUE / multiplier) {
+                return INVALID; // More dollars than fit in a long of cents
+            }
+            cents = unscaled * multiplier;
+        } else {
+            long divisor = POWERS_OF_TEN[scale - 2];
+            cents = (unscaled + divisor / 2) / divisor;
+        }
+        return negative ? -cents : cents;
+    }
+
+    private static int charAt(byte[] bytes, CharSequence chars, int i) {
+        return bytes != null ? bytes[i] : chars.charAt(i);
+    }
+
+    // === FORMAT ===
+    // Appends the amount with exactly two decimals and no currency sign, e.g. -17667 -> "-176.67"
+    public static void appendCents(StringBuilder out, long cents) {
+        if (cents == Long.MIN_VALUE) {
+            out.append("-92233720368547758.08"); // The one value whose magnitude doesn't fit in a long
+            return;
+        }
+        if (cents < 0) {
+            out.append('-');
+            cents = -cents;
+        }
+        out.append(cents / 100).append('.').append((char) ('0' + cents / 10 % 10)).append((char) ('0' + cents % 10));
+    }
+
+    public static String format(long cents) {
+        StringBuilder out = new StringBuilder(24);
+        appendCents(out, cents);
+        return out.toString();
+    }
+
+    // === DOUBLE CONVERSIONS (for callers that still pass dollars as a double) ===
+
+    // Nearest whole cent, e.g. 176.67 -> 17667 (a double is rarely exact, so truncating could lose a cent)
+    public static long fromDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pluralsight;
+
+// Which slice of a report's matches to write: skip `offset` matches, then write at most `limit`
+public class Page {
+
+    private static final Page ALL = new Page(0, Integer.MAX_VALUE);
+
+    private final int offset;
+    private final int limit;
+
+    public Page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    // Every match
+    public static Page all() {
+        return ALL;
+    }
+
+    // The first `limit` matches (with newest-first reports: the `limit` most recent)
+    public static Page first(int limit) {
+        return new Page(0, limit);
+    }
+
+    // Page `number` (0-based) of `size` matches per page
+    public static Page number(int number, int size) {
+        return new Page(Math.multiplyExact(number, size), size);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,630 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+// A ledger kept as one file per calendar month plus a small journal of recent appends, for histories
+// too big to hold in memory at once. Everything lives in one directory:
+//
+//   manifest          which month files make up the ledger, with each month's row count, dates and totals
+//   2024-01.3.ldg     one month of rows in the binary format (see BinaryLedgerFile); the middle number is
+//                     a generation, bumped every time the month is rewritten
+//   journal-7.csv     rows appended since the last compaction, kept by an ordinary Ledger
+//                     (so appends get its write-ahead log, group commit and crash recovery)
+//
+// A month is only read when a query's date range overlaps it, and then stays in memory until the loaded
+// rows exceed the budget, least recently used month first. Balances and month totals come from the
+// manifest and the journal, so they never load a month. compact() folds the journal into the month files:
+// touched months are written under a new generation, the manifest is switched over with one atomic rename,
+// and only then are the replaced files deleted. It runs by itself in the background once the journal reaches
+// its row limit (so a long-running process doesn't keep every append in memory), and again on close().
+//
+// This is a standalone storage component, not the app's backing store: APP and LedgerServer still use the
+// single-file Ledger, which has the full report, search and metrics API. Programs that keep years of history
+// use this class directly (see PartitionedLedgerBenchmark for one that does).
+public class PartitionedLedger implements Closeable {
+
+    public static final long DEFAULT_MAX_LOADED_ROWS = 2_000_000;
+    public static final int DEFAULT_MAX_JOURNAL_ROWS = 100_000;
+
+    private static final String MANIFEST = "manifest";
+    private static final String MANIFEST_HEADER = "ledger-manifest|1";
+
+    // One month file, as listed in the manifest
+    private static class MonthFile {
+        final int monthKey; // year * 12 + (month - 1)
+        final int generation;
+        final int rows;
+        final int minDay;
+        final int maxDay;
+        final LedgerAggregates.Totals totals;
+
+        MonthFile(int monthKey, int generation, int rows, int minDay, int maxDay, LedgerAggregates.Totals totals) {
+            this.monthKey = monthKey;
+            this.generation = generation;
+            this.rows = rows;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+            this.totals = totals;
+        }
+
+        String fileName() {
+            return monthName(monthKey) + "." + generation + ".ldg";
+        }
+    }
+
+    // A month read into memory, with its own indexes
+    private static class LoadedMonth {
+        final TransactionStore store;
+        final DateIndex dateIndex;
+        final SubstringIndex vendorIndex;
+        final SubstringIndex descriptionIndex;
+
+        LoadedMonth(TransactionStore store) {
+            this.store = store;
+            this.dateIndex = DateIndex.build(store);
+            this.vendorIndex = SubstringIndex.build(store, true);
+            this.descriptionIndex = SubstringIndex.build(store, false);
+        }
+
+        QueryCursor query(LedgerQuery q) {
+            return QueryPlanner.plan(q, store, dateIndex, vendorIndex, descriptionIndex);
+        }
+    }
+
+    // Called for each match of a query; returns false to stop early
+    private interface MatchVisitor {
+        boolean visit(TransactionStore store, int row) throws IOException;
+    }
+
+    // === INSTANCE VARIABLES ===
+    private final Path directory;
+    private final long maxLoadedRows;
+    private final TreeMap<Integer, MonthFile> months = new TreeMap<>();
+
+    // Months in memory, least recently used first (access order); guarded by synchronized (loaded)
+    private final LinkedHashMap<Integer, LoadedMonth> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private long loadedRows = 0;
+    private long monthLoads = 0;
+    private long evictions = 0;
+
+    // Appends and queries share the lock; compaction takes it exclusively while it swaps files
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int journalNumber = 1;
+    private Ledger journal;
+
+    // Automatic compaction: at most one queued or running at a time, on a thread of its own so its file IO
+    // never ties up the common fork-join pool that loading and report batches use
+    private final int maxJournalRows;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "ledger-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compactionQueued = new AtomicBoolean(false);
+    private volatile CompletableFuture<Void> compaction = CompletableFuture.completedFuture(null);
+    private volatile IOException compactionFailure;
+
+    // === CONSTRUCTOR ===
+    // Opens (or creates) a partitioned ledger in the directory, keeping at most about
+    // DEFAULT_MAX_LOADED_ROWS rows of history in memory
+    public PartitionedLedger(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_LOADED_ROWS);
+    }
+
+    // The most recently used month always stays loaded, even if it alone is over the budget
+    public PartitionedLedger(Path directory, long maxLoadedRows) throws IOException {
+        this(directory, maxLoadedRows, DEFAULT_MAX_JOURNAL_ROWS);
+    }
+
+    // Same, compacting automatically whenever the journal holds maxJournalRows rows
+    public PartitionedLedger(Path directory, long maxLoadedRows, int maxJournalRows) throws IOException {
+        if (maxJournalRows < 1) {
+            throw new IllegalArgumentException("maxJournalRows must be at least 1");
+        }
+        this.directory = directory;
+        this.maxLoadedRows = maxLoadedRows;
+        this.maxJournalRows = maxJournalRows;
+        Files.createDirectories(directory);
+        if (Files.exists(directory.resolve(MANIFEST))) {
+            readManifest();
+        } else {
+            createJournalFile(journalNumber);
+            writeManifest(months, journalNumber);
+        }
+        deleteUnlistedFiles(); // Left behind if a compaction was interrupted
+        journal = openJournal();
+    }
+
+    // === IMPORT ===
+    // Adds every row of a single-file ledger (CSV or binary) straight into the month files
+    public void importLedger(Path file) throws IOException {
+        TransactionStore rows = BinaryLedgerFile.isBinaryLedger(file)
+                ? BinaryLedgerFile.read(file) : TransactionLoader.load(file).getStore();
+        lock.writeLock().lock();
+        try {
+            fold(rows, journalNumber);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // === ADD TRANSACTION ===
+    // Appends go to the journal; durable on return, like Ledger.addTransactions
+    public void addTransactions(Transactions t) throws IOException {
+        try {
+            addTransactionsAsync(t).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> addTransactionsAsync(Transactions t) {
+        CompletableFuture<Void> appended;
+        int journalRows;
+        lock.readLock().lock();
+        try {
+            appended = journal.addTransactionsAsync(t);
+            journalRows = journal.getStore().size();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (journalRows >= maxJournalRows && compactionQueued.compareAndSet(false, true)) {
+            try {
+                compaction = CompletableFuture.runAsync(this::compactInBackground, compactor);
+            } catch (RejectedExecutionException e) {
+                compactionQueued.set(false); // Appending after close(): the rows wait for the next compact()
+            }
+        }
+        return appended;
+    }
+
+    // === QUERIES ===
+    // Matches come month by month in date order (newest month first for newest-first queries),
+    // with the rows still in the journal after the last month (or before the newest month)
+
+    public List<Transactions> search(LedgerQuery q) throws IOException {
+        List<Transactions> result = new ArrayList<>();
+        forEachMatch(q, (store, row) -> result.add(store.get(row)));
+        return result;
+    }
+
+    // Same contract as Ledger.report: skips page.offset matches, writes at most page.limit, flushes once
+    public int report(LedgerQuery q, ReportSink sink, Page page) throws IOException {
+        StringBuilder line = new StringBuilder(128);
+        int[] seen = {0};
+        int[] written = {0};
+        if (page.getLimit() > 0) {
+            forEachMatch(q, (store, row) -> {
+                if (seen[0]++ < page.getOffset()) {
+                    return true;
+                }
+                line.setLength(0);
+                store.appendRow(row, line);
+                sink.writeLine(line);
+                return ++written[0] < page.getLimit();
+            });
+        }
+        sink.flush();
+        return written[0];
+    }
+
+    private void forEachMatch(LedgerQuery q, MatchVisitor visitor) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<MonthFile> overlapping = new ArrayList<>();
+            for (MonthFile file : months.values()) {
+                if (file.maxDay >= q.getFromDay() && file.minDay <= q.getToDay()) {
+                    overlapping.add(file);
+                }
+            }
+            if (q.isNewestFirst()) {
+                Collections.reverse(overlapping);
+                if (!visitAll(journal.query(q), journal.getStore(), visitor)) {
+                    return;
+                }
+            }
+            for (MonthFile file : overlapping) {
+                LoadedMonth month = load(file);
+                if (!visitAll(month.query(q), month.store, visitor)) {
+                    return;
+                }
+            }
+            if (!q.isNewestFirst()) {
+                visitAll(journal.query(q), journal.getStore(), visitor);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean visitAll(QueryCursor cursor, TransactionStore store, MatchVisitor visitor)
+            throws IOException {
+        for (int row = cursor.nextRow(); row >= 0; row = cursor.nextRow()) {
+            if (!visitor.visit(store, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // === TOTALS (NO MONTH IS LOADED) ===
+
+    public long getBalanceCents() {
+        return getOverall().getNetCents();
+    }
+
+    public LedgerAggregates.Totals getOverall() {
+        lock.readLock().lock();
+        try {
+            LedgerAggregates.Totals sum = journal.getAggregates().getOverall();
+            for (MonthFile file : months.values()) {
+                sum.add(file.totals);
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public LedgerAggregates.Totals getMonth(int year, int month) {
+        lock.readLock().lock();
+        try {
+            LedgerAggregates.Totals sum = journal.getAggregates().getMonth(year, month);
+            MonthFile file = months.get(year * 12 + (month - 1));
+            if (file != null) {
+                sum.add(file.totals);
+            }
+            return sum;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // === MEMORY USE ===
+
+    public int getMonthCount() {
+        lock.readLock().lock();
+        try {
+            return months.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getLoadedMonthCount() {
+        synchronized (loaded) {
+            return loaded.size();
+        }
+    }
+
+    public long getLoadedRows() {
+        synchronized (loaded) {
+            return loadedRows;
+        }
+    }
+
+    // How many times a month file has been read, and how many loaded months were dropped for the budget
+    public long getMonthLoads() {
+        synchronized (loaded) {
+            return monthLoads;
+        }
+    }
+
+    public long getEvictions() {
+        synchronized (loaded) {
+            return evictions;
+        }
+    }
+
+    // === LAZY LOADING AND EVICTION ===
+    // Returns the month from memory, reading it first if needed and then evicting the least recently
+    // used months until the loaded rows fit the budget again
+    private LoadedMonth load(MonthFile file) throws IOException {
+        synchronized (loaded) {
+            LoadedMonth month = loaded.get(file.monthKey);
+            if (month == null) {
+                month = new LoadedMonth(BinaryLedgerFile.read(directory.resolve(file.fileName())));
+                loaded.put(file.monthKey, month);
+                loadedRows += month.store.size();
+                monthLoads++;
+                Iterator<LoadedMonth> eldest = loaded.values().iterator();
+                while (loadedRows > maxLoadedRows && loaded.size() > 1) {
+                    loadedRows -= eldest.next().store.size();
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+            return month;
+        }
+    }
+
+    private void unload(int monthKey) {
+        synchronized (loaded) {
+            LoadedMonth month = loaded.remove(monthKey);
+            if (month != null) {
+                loadedRows -= month.store.size();
+            }
+        }
+    }
+
+    // === COMPACTION ===
+    // Folds the journal into the month files and starts a new, empty journal
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            TransactionStore recent = journal.getStore();
+            if (recent.size() == 0) {
+                return;
+            }
+            journal.close(); // Every journal row is now in the journal's CSV file (no snapshot: see openJournal)
+            try {
+                fold(recent, journalNumber + 1);
+            } finally {
+                // The new, empty journal; or, if the fold failed before switching over, the old one again
+                journal = openJournal();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A failed automatic compaction loses nothing (the rows are still in the journal); it is tried again when
+    // the next append finds the journal over the limit, and close() reports the failure if it never succeeds
+    private void compactInBackground() {
+        try {
+            compact();
+            compactionFailure = null;
+        } catch (IOException e) {
+            compactionFailure = e;
+        } finally {
+            compactionQueued.set(false);
+        }
+    }
+
+    // Rows waiting in the journal for the next compaction
+    public int getJournalRows() {
+        lock.readLock().lock();
+        try {
+            return journal.getStore().size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rewrites every month the rows fall in (old rows first, then the new ones in their order), switches the
+    // manifest to the new files and the given journal, then deletes what the manifest no longer lists.
+    // Caller holds the write lock.
+    private void fold(TransactionStore rows, int nextJournal) throws IOException {
+        TreeMap<Integer, IntList> rowsByMonth = new TreeMap<>();
+        int cachedDay = Integer.MIN_VALUE;
+        int cachedMonth = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            int day = rows.getEpochDay(row);
+            if (day != cachedDay) {
+                cachedDay = day;
+                cachedMonth = monthKey(day);
+            }
+            rowsByMonth.computeIfAbsent(cachedMonth, k -> new IntList()).add(row);
+        }
+
+        TreeMap<Integer, MonthFile> updated = new TreeMap<>(months);
+        for (Map.Entry<Integer, IntList> entry : rowsByMonth.entrySet()) {
+            MonthFile old = months.get(entry.getKey());
+            TransactionStore merged = new TransactionStore();
+            if (old != null) {
+                merged.appendAll(BinaryLedgerFile.read(directory.resolve(old.fileName())));
+            }
+            IntList monthRows = entry.getValue();
+            for (int i = 0; i < monthRows.size(); i++) {
+                int row = monthRows.get(i);
+                merged.append(rows.getEpochDay(row), rows.getSecondOfDay(row), rows.getDescription(row),
+                        rows.getVendor(row), rows.getAmountCents(row));
+            }
+            updated.put(entry.getKey(), writeMonth(entry.getKey(), old == null ? 1 : old.generation + 1, merged));
+        }
+
+        createJournalFile(nextJournal);
+        writeManifest(updated, nextJournal); // The switch-over: before this the old files are still the ledger
+        months.clear();
+        months.putAll(updated);
+        journalNumber = nextJournal;
+        for (Integer monthKey : rowsByMonth.keySet()) {
+            unload(monthKey); // Reloaded from the new file on next use
+        }
+        deleteUnlistedFiles();
+    }
+
+    private MonthFile writeMonth(int monthKey, int generation, TransactionStore store) throws IOException {
+        LedgerAggregates.Totals totals = new LedgerAggregates.Totals();
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int row = 0; row < store.size(); row++) {
+            totals.add(store.getAmountCents(row));
+            minDay = Math.min(minDay, store.getEpochDay(row));
+            maxDay = Math.max(maxDay, store.getEpochDay(row));
+        }
+        MonthFile file = new MonthFile(monthKey, generation, store.size(), minDay, maxDay, totals);
+        Path path = directory.resolve(file.fileName());
+        BinaryLedgerFile.write(store, path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true); // On disk before the manifest can point at it
+        }
+        return file;
+    }
+
+    // === CLOSE ===
+    // Waits for a running automatic compaction, then folds the rest of the journal into the month files
+    // and closes it
+    @Override
+    public void close() throws IOException {
+        compaction.exceptionally(e -> null).join(); // Its failure, if any, is in compactionFailure
+        compactor.shutdown();
+        lock.writeLock().lock();
+        try {
+            compact();
+            journal.close();
+        } catch (IOException e) {
+            if (compactionFailure != null) {
+                e.addSuppressed(compactionFailure);
+            }
+            throw e;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // === MANIFEST ===
+    //   ledger-manifest|1
+    //   journal|<number>
+    //   month|<YYYY-MM>|<generation>|<rows>|<min day>|<max day>|<count>|<deposits>|<deposit cents>|<payments>|<payment cents>
+    //   checksum|<CRC32 of every line above>
+
+    private void writeManifest(Map<Integer, MonthFile> files, int journal) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append(MANIFEST_HEADER).append('\n');
+        text.append("journal|").append(journal).append('\n');
+        for (MonthFile file : files.values()) {
+            LedgerAggregates.Totals t = file.totals;
+            text.append("month|").append(monthName(file.monthKey)).append('|').append(file.generation)
+                    .append('|').append(file.rows).append('|').append(file.minDay).append('|').append(file.maxDay)
+                    .append('|').append(t.getCount()).append('|').append(t.getDepositCount())
+                    .append('|').append(t.getDepositCents()).append('|').append(t.getPaymentCount())
+                    .append('|').append(t.getPaymentCents()).append('\n');
+        }
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] checksum = ("checksum|" + crc(body) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temp, new byte[0]);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(java.nio.ByteBuffer.wrap(body));
+            channel.write(java.nio.ByteBuffer.wrap(checksum));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readManifest() throws IOException {
+        Path file = directory.resolve(MANIFEST);
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.size() < 3 || !lines.get(0).equals(MANIFEST_HEADER)) {
+            throw new IOException(file + " is not a ledger manifest");
+        }
+        StringBuilder body = new StringBuilder();
+        for (String line : lines.subList(0, lines.size() - 1)) {
+            body.append(line).append('\n');
+        }
+        if (!lines.get(lines.size() - 1).equals("checksum|" + crc(body.toString().getBytes(StandardCharsets.UTF_8)))) {
+            throw new IOException("Checksum mismatch in " + file);
+        }
+        try {
+            for (String line : lines.subList(1, lines.size() - 1)) {
+                String[] f = line.split("\\|");
+                if (f[0].equals("journal")) {
+                    journalNumber = Integer.parseInt(f[1]);
+                } else if (f[0].equals("month")) {
+                    int key = Integer.parseInt(f[1].substring(0, 4)) * 12 + Integer.parseInt(f[1].substring(5, 7)) - 1;
+                    months.put(key, new MonthFile(key, Integer.parseInt(f[2]), Integer.parseInt(f[3]),
+                            Integer.parseInt(f[4]), Integer.parseInt(f[5]),
+                            LedgerAggregates.Totals.of(Long.parseLong(f[6]), Long.parseLong(f[7]),
+                                    Long.parseLong(f[8]), Long.parseLong(f[9]), Long.parseLong(f[10]))));
+                } else {
+                    throw new IOException("Unknown manifest entry: " + line);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Damaged ledger manifest " + file, e);
+        }
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    // === FILES ===
+
+    // The journal never writes a snapshot: it is folded away at maxJournalRows, and the next compaction
+    // would delete the snapshot along with the journal
+    private Ledger openJournal() {
+        return new Ledger(journalFile(journalNumber).toString(), GroupCommitPolicy.defaults(), false);
+    }
+
+    private Path journalFile(int number) {
+        return directory.resolve("journal-" + number + ".csv");
+    }
+
+    // An empty journal file, so opening its Ledger doesn't report a missing file
+    private void createJournalFile(int number) throws IOException {
+        Path file = journalFile(number);
+        if (!Files.exists(file)) {
+            Files.createFile(file);
+        }
+    }
+
+    // Deletes month files and journals (with their log, checkpoint and snapshot) the manifest doesn't list
+    private void deleteUnlistedFiles() throws IOException {
+        Set<String> keep = new HashSet<>();
+        for (MonthFile file : months.values()) {
+            keep.add(file.fileName());
+        }
+        String journalPrefix = journalFile(journalNumber).getFileName().toString();
+        try (var entries = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                String name = entry.getFileName().toString();
+                boolean staleMonth = name.endsWith(".ldg") && !keep.contains(name);
+                boolean staleJournal = name.startsWith("journal-") && !name.startsWith(journalPrefix);
+                if (staleMonth || staleJournal) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    private static int monthKey(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.getYear() * 12 + (date.getMonthValue() - 1);
+    }
+
+    // "YYYY-MM" for a month key
+    private static String monthName(int monthKey) {
+        int year = monthKey / 12;
+        int month = monthKey % 12 + 1;
+        StringBuilder name = new StringBuilder(7);
+        name.append((char) ('0' + year / 1000 % 10)).append((char) ('0' + year / 100 % 10))
+                .append((char) ('0' + year / 10 % 10)).append((char) ('0' + year % 10)).append('-')
+                .append((char) ('0' + month / 10)).append((char) ('0' + month % 10));
+        return name.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.pluralsight;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Lazy result of a Ledger.query(...). Rows are matched one at a time as the caller asks for them,
+// so stopping early (e.g. after the first page) never touches the rest of the ledger.
+public class QueryCursor implements Iterator<Transactions> {
+
+    // One of the query's filters, applied to a row number
+    interface RowFilter {
+        boolean test(int row);
+    }
+
+    private final TransactionStore store;
+    private final int[] rows;           // Candidate rows from an index, or null to scan every row
+    private final int rowCount;         // Number of candidates (or rows to scan)
+    private final RowFilter[] filters;  // Remaining filters, most selective first
+    private final boolean newestFirst;
+
+    private int position = 0;           // How many candidates have been examined
+    private int pending = -1;           // Next matching row, found but not yet returned
+    private long examinedBefore = 0;    // Rows already examined to produce the candidates (see QueryResultCache)
+
+    QueryCursor(TransactionStore store, int[] rows, int rowCount, RowFilter[] filters, boolean newestFirst) {
+        this.store = store;
+        this.rows = rows;
+        this.rowCount = rowCount;
+        this.filters = filters;
+        this.newestFirst = newestFirst;
+    }
+
+    // A cursor with no results
+    static QueryCursor empty(TransactionStore store) {
+        return new QueryCursor(store, new int[0], 0, new RowFilter[0], false);
+    }
+
+    // === ROW-LEVEL ACCESS ===
+    // Returns the next matching row number, or -1 when there are no more
+    public int nextRow() {
+        if (pending >= 0) {
+            int row = pending;
+            pending = -1;
+            return row;
+        }
+        while (position < rowCount) {
+            int index = newestFirst ? rowCount - 1 - position : position;
+            position++;
+            int row = rows == null ? index : rows[index];
+            if (passes(row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // The store the row numbers refer to (a ledger may swap in a new store, but never changes this one's rows)
+    TransactionStore getStore() {
+        return store;
+    }
+
+    // === COST ===
+    // Rows looked at so far: candidates examined by this cursor, plus any rows checked to build them
+    public long getRowsExamined() {
+        return examinedBefore + position;
+    }
+
+    void addRowsExaminedBefore(long rows) {
+        examinedBefore += rows;
+    }
+
+    // True if the plan checks every row of the store (no index narrowed it down), see ReportBatch
+    boolean scansEveryRow() {
+        return rows == null;
+    }
+
+    // Whether one row passes the remaining filters; stops at the first filter that fails.
+    // Thread-safe: the filters only read the store.
+    boolean passes(int row) {
+        for (RowFilter filter : filters) {
+            if (!filter.test(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // === ITERATOR ===
+
+    @Override
+    public boolean hasNext() {
+        if (pending < 0) {
+            pending = nextRow();
+        }
+        return pending >= 0;
+    }
+
+    @Override
+    public Transactions next() {
+        int row = nextRow();
+        if (row < 0) {
+            throw new NoSuchElementException();
+        }
+        return store.get(row);
+    }
+}
@@ -0,0 +1,99 @@
+package com.pluralsight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+// Turns a LedgerQuery into a QueryCursor over one store and its indexes.
+// The filter with the fewest expected matches picks the starting rows (from the date or trigram index,
+// or a plain scan if no index helps), and the remaining filters run on those rows, most selective first,
+// stopping at the first one that fails.
+// The caller keeps appends out while planning (the indexes are not thread-safe); the cursor needs no lock.
+final class QueryPlanner {
+
+    private QueryPlanner() {
+    }
+
+    static QueryCursor plan(LedgerQuery q, TransactionStore store, DateIndex dateIndex,
+                            SubstringIndex vendorIndex, SubstringIndex descriptionIndex) {
+        int size = store.size(); // Rows appended after this point are not part of the result
+        List<PlannedFilter> plan = new ArrayList<>();
+
+        if (q.hasAmountFilter()) {
+            // There is no amount index; an exact amount is assumed to be rare, a range (e.g. deposits) common
+            int expected = q.getMinCents() > q.getMaxCents() ? 0 : q.getMinCents() == q.getMaxCents() ? 1 : size / 2;
+            plan.add(new PlannedFilter(expected, null,
+                    row -> store.getAmountCents(row) >= q.getMinCents() && store.getAmountCents(row) <= q.getMaxCents()));
+        }
+        if (q.hasDateFilter()) {
+            plan.add(new PlannedFilter(dateIndex.countBetween(q.getFromDay(), q.getToDay()),
+                    () -> dateIndex.rowsBetween(q.getFromDay(), q.getToDay()),
+                    row -> store.getEpochDay(row) >= q.getFromDay() && store.getEpochDay(row) <= q.getToDay()));
+        }
+        if (q.getVendorKeyword() != null) {
+            boolean[] vendorMatches = vendorIndex.matchingValues(q.getVendorKeyword());
+            plan.add(new PlannedFilter(vendorIndex.countRows(vendorMatches), () -> vendorIndex.rowsFor(vendorMatches),
+                    row -> matches(vendorMatches, store.getVendorId(row))));
+        }
+        if (q.getDescriptionKeyword() != null) {
+            boolean[] descriptionMatches = descriptionIndex.matchingValues(q.getDescriptionKeyword());
+            plan.add(new PlannedFilter(descriptionIndex.countRows(descriptionMatches),
+                    () -> descriptionIndex.rowsFor(descriptionMatches),
+                    row -> matches(descriptionMatches, store.getDescriptionId(row))));
+        }
+        plan.sort((x, y) -> Integer.compare(x.expected, y.expected)); // Most selective first
+
+        if (!plan.isEmpty() && plan.get(0).expected == 0) {
+            return QueryCursor.empty(store); // Some filter can't match anything
+        }
+
+        // Start from the most selective filter that has an index, unless a plain scan is just as small
+        int[] rows = null;
+        int rowCount = size;
+        for (PlannedFilter step : plan) {
+            if (step.indexRows != null && step.expected < size) {
+                rows = step.indexRows.get();
+                rowCount = rows.length;
+                plan.remove(step);
+                break;
+            }
+        }
+
+        QueryCursor.RowFilter[] filters = new QueryCursor.RowFilter[plan.size()];
+        for (int i = 0; i < filters.length; i++) {
+            filters[i] = plan.get(i).filter;
+        }
+        return new QueryCursor(store, rows, rowCount, filters, q.isNewestFirst());
+    }
+
+    // A single test of every filter, for checking individual rows without planning (e.g. rows appended
+    // after a cached result was computed, see QueryResultCache). Same matches as plan(), in any order.
+    static QueryCursor.RowFilter rowMatcher(LedgerQuery q, TransactionStore store, SubstringIndex vendorIndex,
+                                            SubstringIndex descriptionIndex) {
+        String vendor = q.getVendorKeyword() == null ? null : q.getVendorKeyword().toLowerCase(Locale.ROOT);
+        String description = q.getDescriptionKeyword() == null ? null
+                : q.getDescriptionKeyword().toLowerCase(Locale.ROOT);
+        return row -> q.matchesDateAndAmount(store.getEpochDay(row), store.getAmountCents(row))
+                && (vendor == null || vendorIndex.valueContains(store.getVendorId(row), vendor))
+                && (description == null || descriptionIndex.valueContains(store.getDescriptionId(row), description));
+    }
+
+    // One filter of a query, with an estimate of how many rows it lets through
+    private static class PlannedFilter {
+        final int expected;
+        final Supplier<int[]> indexRows; // Matching rows from an index, or null if none
+        final QueryCursor.RowFilter filter;
+
+        PlannedFilter(int expected, Supplier<int[]> indexRows, QueryCursor.RowFilter filter) {
+            this.expected = expected;
+            this.indexRows = indexRows;
+            this.filter = filter;
+        }
+    }
+
+    // A value added after the match array was built is simply not a match
+    private static boolean matches(boolean[] valueMatches, int id) {
+        return id < valueMatches.length && valueMatches[id];
+    }
+}
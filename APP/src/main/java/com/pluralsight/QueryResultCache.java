@@ -0,0 +1,237 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded cache of query results for Ledger's reports and searches, keyed by the LedgerQuery
+// (so every report type and every distinct set of customSearch inputs gets its own entry).
+// A result is the matching row numbers in file order, plus how many rows the ledger had when it was
+// last brought up to date. Rows are only ever appended, so a cached result stays right for the rows
+// it covers: after an append, the next lookup checks just the new rows against the query and adds the
+// matches to the end, instead of running the whole query again.
+//
+// Bounded by entry count and by the total number of cached row numbers; the least recently used entry
+// goes first. Lookups and updates are synchronized, but a miss is computed outside the monitor, so queries
+// from many threads only queue up on the cache for the short lookup and put, never for each other's misses.
+// Ledger calls get(), lookup() and put() under its read lock, so the store and indexes don't change while
+// an entry is computed or extended. Two threads missing on the same query both compute it; the later put wins.
+public class QueryResultCache {
+
+    // Beyond this many new rows it is cheaper to run the query again through the indexes
+    private static final int MAX_EXTEND_ROWS = 50_000;
+
+    // The matching rows of one query, rows[0..count) in file order. Never changes once handed out:
+    // extending an entry only writes past `count`, or into a new array.
+    static final class Result {
+        private final int[] rows;
+        private final int count;
+        private final long examined; // Rows checked to produce this result (0 for a plain hit)
+
+        Result(int[] rows, int count, long examined) {
+            this.rows = rows;
+            this.count = count;
+            this.examined = examined;
+        }
+
+        int size() {
+            return count;
+        }
+
+        int row(int index) {
+            return rows[index];
+        }
+
+        // A cursor over the cached rows; it has no filters left to apply
+        QueryCursor cursor(TransactionStore store, boolean newestFirst) {
+            QueryCursor cursor = new QueryCursor(store, rows, count, new QueryCursor.RowFilter[0], newestFirst);
+            cursor.addRowsExaminedBefore(examined);
+            return cursor;
+        }
+    }
+
+    private static class Entry {
+        int[] rows;
+        int count;
+        int coveredRows; // Store size the entry is up to date with
+    }
+
+    private final int maxEntries;
+    private final long maxCachedRows;
+    private final LinkedHashMap<LedgerQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedRows = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long extensions = 0;
+    private long evictions = 0;
+
+    // === CONSTRUCTOR ===
+    public QueryResultCache(int maxEntries, long maxCachedRows) {
+        if (maxEntries < 1 || maxCachedRows < 1) {
+            throw new IllegalArgumentException("Cache limits must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.maxCachedRows = maxCachedRows;
+    }
+
+    // A query with no filters matches every row; the store itself answers it, so it is never cached
+    static boolean isWorthCaching(LedgerQuery q) {
+        return q.hasDateFilter() || q.hasAmountFilter() || q.getVendorKeyword() != null
+                || q.getDescriptionKeyword() != null;
+    }
+
+    // === LOOKUP ===
+    // Returns the query's matches over every row currently in the store: from the cache (extended with
+    // any rows appended since), or by running the query and caching the result
+    Result get(LedgerQuery q, TransactionStore store, DateIndex dateIndex,
+               SubstringIndex vendorIndex, SubstringIndex descriptionIndex) {
+        Result cached = lookup(q, store, vendorIndex, descriptionIndex);
+        if (cached != null) {
+            return cached;
+        }
+        // Not holding the monitor from here until put(): this is the expensive part
+        return fill(q, QueryPlanner.plan(q, store, dateIndex, vendorIndex, descriptionIndex), store);
+    }
+
+    // Runs a planned query (the caller already had a miss for it) and caches its matches
+    Result fill(LedgerQuery q, QueryCursor cursor, TransactionStore store) {
+        IntList rows = new IntList();
+        for (int row = cursor.nextRow(); row >= 0; row = cursor.nextRow()) {
+            rows.add(row);
+        }
+        if (q.isNewestFirst()) {
+            reverse(rows.array(), rows.size()); // Kept in file order so appended matches go on the end
+        }
+        put(q, rows.array(), rows.size(), store.size());
+        return new Result(rows.array(), rows.size(), cursor.getRowsExamined());
+    }
+
+    // The cached matches brought up to date with the store, or null (a miss) if the query isn't cached
+    // or its entry is too far behind to be worth extending
+    synchronized Result lookup(LedgerQuery q, TransactionStore store, SubstringIndex vendorIndex,
+                               SubstringIndex descriptionIndex) {
+        int size = store.size();
+        Entry entry = entries.get(q);
+        if (entry != null && size - entry.coveredRows <= MAX_EXTEND_ROWS) {
+            hits++;
+            long examined = size - entry.coveredRows;
+            if (examined > 0) {
+                extend(entry, q, store, vendorIndex, descriptionIndex, size);
+            }
+            return new Result(entry.rows, entry.count, examined);
+        }
+        misses++;
+        if (entry != null) {
+            remove(q); // Too far behind; the caller recomputes it
+        }
+        return null;
+    }
+
+    // Caches a computed result: rows[0..count) in file order, covering the store's first `coveredRows` rows.
+    // The array is kept, so the caller must not change it afterwards.
+    synchronized void put(LedgerQuery q, int[] rows, int count, int coveredRows) {
+        if (count > maxCachedRows / 4) {
+            return; // One huge result would push out everything else
+        }
+        remove(q); // Another thread may have computed it in the meantime
+        Entry entry = new Entry();
+        entry.rows = rows;
+        entry.count = count;
+        entry.coveredRows = coveredRows;
+        entries.put(q, entry);
+        cachedRows += count;
+        evictIfNeeded(q);
+    }
+
+    // Checks the rows appended since the entry was last brought up to date
+    private void extend(Entry entry, LedgerQuery q, TransactionStore store, SubstringIndex vendorIndex,
+                        SubstringIndex descriptionIndex, int size) {
+        QueryCursor.RowFilter matcher = QueryPlanner.rowMatcher(q, store, vendorIndex, descriptionIndex);
+        int before = entry.count;
+        for (int row = entry.coveredRows; row < size; row++) {
+            if (matcher.test(row)) {
+                if (entry.count == entry.rows.length) {
+                    entry.rows = Arrays.copyOf(entry.rows, Math.max(16, entry.count * 2));
+                }
+                entry.rows[entry.count++] = row;
+            }
+        }
+        entry.coveredRows = size;
+        cachedRows += entry.count - before;
+        extensions++;
+        evictIfNeeded(q);
+    }
+
+    private static void reverse(int[] rows, int count) {
+        for (int i = 0, j = count - 1; i < j; i++, j--) {
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+    }
+
+    // Drops least recently used entries (never `keep`, the one just used) until both limits hold
+    private void evictIfNeeded(LedgerQuery keep) {
+        Iterator<Map.Entry<LedgerQuery, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedRows > maxCachedRows) && eldest.hasNext()) {
+            Map.Entry<LedgerQuery, Entry> e = eldest.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+            cachedRows -= e.getValue().count;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private void remove(LedgerQuery q) {
+        Entry entry = entries.remove(q);
+        if (entry != null) {
+            cachedRows -= entry.count;
+        }
+    }
+
+    // Forgets everything, e.g. when the ledger's store is replaced rather than appended to
+    public synchronized void clear() {
+        entries.clear();
+        cachedRows = 0;
+    }
+
+    // === COUNTERS ===
+
+    // Lookups answered from the cache (including those that first had to check newly appended rows)
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    // Lookups that had to run the query
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Hits that found rows appended since the entry was computed, and checked just those
+    public synchronized long getExtensions() {
+        return extensions;
+    }
+
+    // Entries dropped to stay within the limits
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getCachedRows() {
+        return cachedRows;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "query cache: " + hits + " hits (" + extensions + " extended), " + misses + " misses, "
+                + evictions + " evictions, " + entries.size() + " entries holding " + cachedRows + " rows";
+    }
+}
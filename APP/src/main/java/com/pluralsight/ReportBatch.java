@@ -0,0 +1,164 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Runs several reports together: each one is a query, a sink and a page, as for Ledger.report(...).
+// Reports the result cache already holds are answered from it, and reports an index narrows down (e.g. one
+// month) are run on their own. All the others would have to check every row, so they share ONE pass over
+// the ledger's columns instead of one pass each. The pass is split into blocks of rows that fork-join
+// workers check against every such report at once; the blocks' matches are then joined per report in block
+// order, so every report comes out in file order (or reversed, for newest first) exactly as
+// Ledger.report(...) would write it.
+//
+// Usage: new ReportBatch(ledger).add(q1, sink1, page1).add(q2, sink2, page2).run()
+// The reports are written one after another in the order they were added, so several of them may share
+// one sink. Rows appended while the batch runs are not part of it.
+public class ReportBatch {
+
+    // Rows per block of the pass (one TransactionStore segment)
+    private static final int BLOCK_ROWS = 1 << 16;
+
+    private final Ledger ledger;
+    private final ForkJoinPool pool;
+    private final List<LedgerQuery> queries = new ArrayList<>();
+    private final List<ReportSink> sinks = new ArrayList<>();
+    private final List<Page> pages = new ArrayList<>();
+
+    // === CONSTRUCTOR ===
+    public ReportBatch(Ledger ledger) {
+        this(ledger, ForkJoinPool.commonPool());
+    }
+
+    // Same, with the pass split over the given pool's workers
+    public ReportBatch(Ledger ledger, ForkJoinPool pool) {
+        this.ledger = ledger;
+        this.pool = pool;
+    }
+
+    // === DEFINE ===
+    public ReportBatch add(LedgerQuery q, ReportSink sink, Page page) {
+        queries.add(q);
+        sinks.add(sink);
+        pages.add(page);
+        return this;
+    }
+
+    public int size() {
+        return queries.size();
+    }
+
+    // === RUN ===
+    // Finds every report's matches, then writes each report to its sink and flushes it.
+    // Returns the number of rows written for each report, in the order they were added.
+    public int[] run() throws IOException {
+        long start = System.nanoTime();
+        Ledger.BatchResult matches = ledger.matchAll(queries, pool);
+
+        int[] written = new int[queries.size()];
+        long matched = 0;
+        long scanned = matches.getPassRows();
+        StringBuilder line = new StringBuilder(128); // Reused for every row
+        for (int i = 0; i < queries.size(); i++) {
+            QueryCursor cursor = matches.cursor(i);
+            Page page = pages.get(i);
+            ReportSink sink = sinks.get(i);
+            int skipped = 0;
+            while (skipped < page.getOffset() && cursor.nextRow() >= 0) {
+                skipped++;
+            }
+            if (skipped == page.getOffset()) {
+                int row;
+                while (written[i] < page.getLimit() && (row = cursor.nextRow()) >= 0) {
+                    line.setLength(0);
+                    matches.getStore().appendRow(row, line);
+                    sink.writeLine(line);
+                    written[i]++;
+                }
+            }
+            sink.flush();
+            matched += skipped + written[i];
+            scanned += cursor.getRowsExamined();
+        }
+        ledger.getMetrics().recordReport(System.nanoTime() - start, scanned, matched);
+        return written;
+    }
+
+    // === THE SHARED PASS ===
+
+    // Checks rows [0, size) against every planned scan in one pass; returns each scan's matching rows in
+    // file order. The scans are QueryPlanner cursors that check every row (scansEveryRow()), so each row is
+    // tested with the query's own filters. The caller keeps appends out of the indexes the plans were built
+    // from; the store itself needs no lock.
+    static IntList[] scan(TransactionStore store, int size, QueryCursor[] scans, ForkJoinPool pool) {
+        int blocks = (size + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        IntList[][] blockMatches = new IntList[blocks][];
+        if (blocks > 0) {
+            pool.invoke(new ScanTask(size, scans, blockMatches, 0, blocks));
+        }
+
+        // Join the blocks per report, in block order (= file order)
+        IntList[] merged = new IntList[scans.length];
+        for (int t = 0; t < scans.length; t++) {
+            int total = 0;
+            for (IntList[] block : blockMatches) {
+                total += block[t].size();
+            }
+            IntList rows = new IntList(total);
+            for (IntList[] block : blockMatches) {
+                IntList part = block[t];
+                for (int i = 0; i < part.size(); i++) {
+                    rows.add(part.get(i));
+                }
+            }
+            merged[t] = rows;
+        }
+        return merged;
+    }
+
+    // Splits the blocks in half until one is left, then checks its rows against every scan
+    private static class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int size;
+        private final QueryCursor[] scans;
+        private final IntList[][] blockMatches;
+        private final int firstBlock;
+        private final int endBlock;
+
+        ScanTask(int size, QueryCursor[] scans, IntList[][] blockMatches, int firstBlock, int endBlock) {
+            this.size = size;
+            this.scans = scans;
+            this.blockMatches = blockMatches;
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - firstBlock > 1) {
+                int middle = (firstBlock + endBlock) >>> 1;
+                invokeAll(new ScanTask(size, scans, blockMatches, firstBlock, middle),
+                        new ScanTask(size, scans, blockMatches, middle, endBlock));
+                return;
+            }
+            IntList[] matches = new IntList[scans.length];
+            for (int t = 0; t < scans.length; t++) {
+                matches[t] = new IntList();
+            }
+            int from = firstBlock * BLOCK_ROWS;
+            int to = Math.min(size, from + BLOCK_ROWS);
+            for (int row = from; row < to; row++) {
+                for (int t = 0; t < scans.length; t++) {
+                    if (scans[t].passes(row)) {
+                        matches[t].add(row);
+                    }
+                }
+            }
+            blockMatches[firstBlock] = matches;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.pluralsight;
+
+import java.io.IOException;
+
+// Destination for report output (console, file, memory...).
+// Reports write one line per transaction and call flush() once when they are done,
+// so a sink is free to buffer as much as it likes in between.
+public interface ReportSink {
+
+    // Writes one line of text; the sink adds the line separator
+    void writeLine(CharSequence line) throws IOException;
+
+    // Pushes out anything still buffered
+    void flush() throws IOException;
+}
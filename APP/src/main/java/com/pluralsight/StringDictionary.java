@@ -0,0 +1,77 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Assigns each distinct string a small int id, so a column can store ids instead of repeated text.
+// encode() must be called by one thread at a time (the store's writer); lookup() and decode() are safe
+// from any thread at any time, because values are kept in fixed blocks that are never moved.
+public class StringDictionary {
+
+    private static final int BLOCK_BITS = 12;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[][] blocks = new String[1][];
+    private volatile int size = 0; // Published after the value is stored, so readers never see a gap
+
+    // === ENCODE ===
+    // Returns the id for the value, adding it to the dictionary the first time it is seen
+    public int encode(String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = size;
+            int block = id >>> BLOCK_BITS;
+            String[][] current = blocks;
+            if (block == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            if (current[block] == null) {
+                current[block] = new String[BLOCK_SIZE];
+            }
+            current[block][id & (BLOCK_SIZE - 1)] = value;
+            blocks = current;
+            size = id + 1;       // Before the id can be found, so decode() accepts any id lookup() returns
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    // Returns the id for the value, or -1 if it has never been added
+    public int lookup(String value) {
+        Integer id = ids.get(value);
+        return id == null ? -1 : id;
+    }
+
+    // === DECODE ===
+    public String decode(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Id " + id + " out of bounds for size " + size);
+        }
+        return blocks[id >>> BLOCK_BITS][id & (BLOCK_SIZE - 1)];
+    }
+
+    // Number of distinct values
+    public int size() {
+        return size;
+    }
+
+    // === SNAPSHOT ===
+    // Values in id order, so encoding them again gives every value its old id
+    void writeSnapshot(LedgerSnapshot.Output out) throws IOException {
+        int count = size;
+        out.putInt(count);
+        for (int id = 0; id < count; id++) {
+            out.putString(decode(id));
+        }
+    }
+
+    void readSnapshot(ByteBuffer in) {
+        int count = in.getInt();
+        for (int id = 0; id < count; id++) {
+            encode(LedgerSnapshot.getString(in));
+        }
+    }
+}
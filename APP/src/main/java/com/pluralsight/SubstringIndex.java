@@ -0,0 +1,190 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Case-insensitive "contains" search over one dictionary-encoded column (vendor or description).
+// Every distinct value is split into lowercase trigrams (3-character pieces); a query only has to check
+// the values that contain all of its trigrams, and only distinct values are checked, not every row.
+public class SubstringIndex {
+
+    private final List<String> folded = new ArrayList<>();      // Lowercase text of each value id
+    private final List<IntList> rowsByValue = new ArrayList<>(); // Rows that use each value id, ascending
+    private final Map<Long, IntList> valuesByTrigram = new HashMap<>();
+
+    // === BUILD ===
+    // Indexes every row already in the store, for either the vendor or the description column
+    public static SubstringIndex build(TransactionStore store, boolean vendorColumn) {
+        SubstringIndex index = new SubstringIndex();
+        StringDictionary dictionary = vendorColumn ? store.getVendors() : store.getDescriptions();
+        for (int row = 0; row < store.size(); row++) {
+            int id = vendorColumn ? store.getVendorId(row) : store.getDescriptionId(row);
+            index.add(row, id, dictionary.decode(id));
+        }
+        return index;
+    }
+
+    // === ADD ===
+    // Records that `row` uses value `id`; the value's text is only indexed the first time the id is seen
+    public void add(int row, int id, String value) {
+        while (folded.size() <= id) {
+            folded.add(null);
+            rowsByValue.add(new IntList());
+        }
+        if (folded.get(id) == null) {
+            indexValue(id, value);
+        }
+        rowsByValue.get(id).add(row);
+    }
+
+    // Splits a value into trigrams the first time its id is seen
+    private void indexValue(int id, String value) {
+        String text = value.toLowerCase(Locale.ROOT);
+        folded.set(id, text);
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            IntList ids = valuesByTrigram.computeIfAbsent(trigram(text, i), k -> new IntList());
+            if (ids.size() == 0 || ids.get(ids.size() - 1) != id) { // Skip repeats inside one value
+                ids.add(id);
+            }
+        }
+    }
+
+    // === SNAPSHOT ===
+    // Only the row lists are saved; the trigrams come back from the dictionary, which is far smaller
+    void writeSnapshot(LedgerSnapshot.Output out) throws IOException {
+        out.putInt(rowsByValue.size());
+        for (IntList rows : rowsByValue) {
+            out.putInt(rows.size());
+            out.putInts(rows.array(), rows.size());
+        }
+    }
+
+    static SubstringIndex readSnapshot(ByteBuffer in, StringDictionary dictionary) {
+        SubstringIndex index = new SubstringIndex();
+        int values = in.getInt();
+        for (int id = 0; id < values; id++) {
+            int[] rows = new int[in.getInt()];
+            LedgerSnapshot.getInts(in, rows, rows.length);
+            index.folded.add(null);
+            index.rowsByValue.add(new IntList(rows, rows.length));
+            if (rows.length > 0) {
+                index.indexValue(id, dictionary.decode(id));
+            }
+        }
+        return index;
+    }
+
+    // === QUERY ===
+
+    // Marks which value ids contain the keyword (case-insensitive); index = value id
+    public boolean[] matchingValues(String keyword) {
+        String query = keyword.toLowerCase(Locale.ROOT);
+        boolean[] matches = new boolean[folded.size()];
+        for (int id : candidateValues(query)) {
+            String text = folded.get(id);
+            if (text != null && text.contains(query)) { // Trigrams only narrow it down; confirm the match
+                matches[id] = true;
+            }
+        }
+        return matches;
+    }
+
+    // True if value `id` contains the keyword, which must already be lowercase (Locale.ROOT).
+    // Checks one value directly, for callers testing a handful of rows rather than the whole column.
+    public boolean valueContains(int id, String foldedKeyword) {
+        String text = id < folded.size() ? folded.get(id) : null;
+        return text != null && text.contains(foldedKeyword);
+    }
+
+    // Rows whose value contains the keyword (case-insensitive), in row (file) order
+    public int[] rowsContaining(String keyword) {
+        return rowsFor(matchingValues(keyword));
+    }
+
+    // Rows that use any of the marked value ids, in row (file) order
+    public int[] rowsFor(boolean[] valueMatches) {
+        IntList rows = new IntList();
+        int lists = 0;
+        for (int id = 0; id < valueMatches.length; id++) {
+            if (valueMatches[id]) {
+                IntList valueRows = rowsByValue.get(id);
+                for (int i = 0; i < valueRows.size(); i++) {
+                    rows.add(valueRows.get(i));
+                }
+                lists++;
+            }
+        }
+        int[] result = rows.toArray();
+        if (lists > 1) {
+            Arrays.sort(result); // Several values' row lists were concatenated
+        }
+        return result;
+    }
+
+    // Number of rows that use any of the marked value ids, without collecting them
+    public int countRows(boolean[] valueMatches) {
+        int count = 0;
+        for (int id = 0; id < valueMatches.length; id++) {
+            if (valueMatches[id]) {
+                count += rowsByValue.get(id).size();
+            }
+        }
+        return count;
+    }
+
+    // Value ids that contain every trigram of the query (all ids if the query is shorter than a trigram)
+    private int[] candidateValues(String query) {
+        if (query.length() < 3) {
+            int[] all = new int[folded.size()];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        // Start from the rarest trigram and intersect with the others
+        List<IntList> postings = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            IntList ids = valuesByTrigram.get(trigram(query, i));
+            if (ids == null) {
+                return new int[0]; // Some trigram never occurs, so nothing can match
+            }
+            postings.add(ids);
+        }
+        postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        int[] candidates = postings.get(0).toArray();
+        for (int p = 1; p < postings.size() && candidates.length > 0; p++) {
+            candidates = intersect(candidates, postings.get(p));
+        }
+        return candidates;
+    }
+
+    // Both inputs are ascending, because value ids are indexed in increasing order
+    private static int[] intersect(int[] left, IntList right) {
+        IntList out = new IntList(Math.min(left.length, right.size()));
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.size()) {
+            int a = left[i];
+            int b = right.get(j);
+            if (a == b) {
+                out.add(a);
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return out.toArray();
+    }
+
+    // Packs three UTF-16 chars into one long key
+    private static long trigram(String text, int at) {
+        return ((long) text.charAt(at) << 32) | ((long) text.charAt(at + 1) << 16) | text.charAt(at + 2);
+    }
+}
@@ -0,0 +1,100 @@
+package com.pluralsight;
+
+import java.util.Arrays;
+
+// Hash set of (date, time, vendor, amount) keys, used by BulkImporter to recognise rows the ledger
+// already has. Open addressing over flat arrays: each key is a timestamp, a vendor id and an amount in
+// parallel columns, so millions of keys cost about 24 bytes each instead of an object per key.
+// Not thread-safe; the importer's committer thread is its only user.
+class TransactionKeySet {
+
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    private final StringDictionary vendors = new StringDictionary();
+    private long[] seconds = new long[1024]; // epoch day * 86,400 + second of day
+    private int[] vendorIds = new int[1024];
+    private long[] cents = new long[1024];
+    private int size = 0;
+
+    // Index of each key + 1, or 0 for an empty slot; kept at most half full so probes stay short
+    private int[] slots = new int[2048];
+
+    // Every row of the store, e.g. the ledger's existing rows before an import starts
+    void addAll(TransactionStore store) {
+        for (int row = 0; row < store.size(); row++) {
+            add(store.getEpochDay(row), store.getSecondOfDay(row), store.getVendor(row), store.getAmountCents(row));
+        }
+    }
+
+    // Adds the key; returns false (and changes nothing) if it was already in the set
+    boolean add(int epochDay, int secondOfDay, String vendor, long amountCents) {
+        long second = (long) epochDay * SECONDS_PER_DAY + secondOfDay;
+        int vendorId = vendors.encode(vendor);
+        if (find(second, vendorId, amountCents)) {
+            return false;
+        }
+        if (size == seconds.length) {
+            seconds = Arrays.copyOf(seconds, size * 2);
+            vendorIds = Arrays.copyOf(vendorIds, size * 2);
+            cents = Arrays.copyOf(cents, size * 2);
+        }
+        seconds[size] = second;
+        vendorIds[size] = vendorId;
+        cents[size] = amountCents;
+        size++;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(size - 1);
+        }
+        return true;
+    }
+
+    // True if the key is in the set; never adds it
+    boolean contains(int epochDay, int secondOfDay, String vendor, long amountCents) {
+        int vendorId = vendors.lookup(vendor);
+        return vendorId >= 0 && find((long) epochDay * SECONDS_PER_DAY + secondOfDay, vendorId, amountCents);
+    }
+
+    int size() {
+        return size;
+    }
+
+    private boolean find(long second, int vendorId, long amountCents) {
+        int mask = slots.length - 1;
+        for (int slot = hash(second, vendorId, amountCents) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return false;
+            }
+            int key = entry - 1;
+            if (seconds[key] == second && vendorIds[key] == vendorId && cents[key] == amountCents) {
+                return true;
+            }
+        }
+    }
+
+    private void insert(int key) {
+        int mask = slots.length - 1;
+        int slot = hash(seconds[key], vendorIds[key], cents[key]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = key + 1;
+    }
+
+    private void rehash(int capacity) {
+        slots = new int[capacity];
+        for (int key = 0; key < size; key++) {
+            insert(key);
+        }
+    }
+
+    // Mixes all three parts so nearby timestamps and round amounts still spread over the table
+    private static int hash(long second, int vendorId, long amountCents) {
+        long h = second * 0x9E3779B97F4A7C15L + vendorId * 0xC2B2AE3D27D4EB4FL + amountCents * 0x165667B19E3779F9L;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ h >>> 32);
+    }
+}
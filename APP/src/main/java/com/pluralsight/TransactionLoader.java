@@ -0,0 +1,371 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Bulk loader for the pipe-delimited ledger file.
+// Memory-maps the file, cuts it into newline-aligned chunks and parses the chunks in parallel
+// into column stores, which are then merged in file order.
+public class TransactionLoader {
+
+    // Chunks are never smaller than this (tiny chunks cost more in scheduling than they save)
+    private static final long MIN_CHUNK_BYTES = 1 << 20;
+    // ...and never bigger than this, so a single mapping stays well under the 2 GB limit
+    private static final long MAX_CHUNK_BYTES = 256L << 20;
+
+    // === RESULT TYPES ===
+
+    // A line that could not be turned into a transaction, and why
+    public static class MalformedLine {
+        private final long lineNumber; // 1-based line number in the file
+        private final String text;
+        private final String reason;
+
+        public MalformedLine(long lineNumber, String text, String reason) {
+            this.lineNumber = lineNumber;
+            this.text = text;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason + " -> " + text;
+        }
+    }
+
+    // Everything the loader found, in file order
+    public static class LoadResult {
+        private final TransactionStore store;
+        private final List<MalformedLine> malformedLines;
+        private final long lineCount;
+
+        LoadResult(TransactionStore store, List<MalformedLine> malformedLines, long lineCount) {
+            this.store = store;
+            this.malformedLines = malformedLines;
+            this.lineCount = lineCount;
+        }
+
+        public TransactionStore getStore() {
+            return store;
+        }
+
+        public List<Transactions> getTransactions() {
+            return store.asList();
+        }
+
+        public List<MalformedLine> getMalformedLines() {
+            return malformedLines;
+        }
+
+        // Lines read, including blank and malformed ones
+        public long getLineCount() {
+            return lineCount;
+        }
+    }
+
+    // === LOAD ===
+    // Parses the whole file on the common fork-join pool
+    public static LoadResult load(Path file) throws IOException {
+        return load(file, ForkJoinPool.commonPool());
+    }
+
+    public static LoadResult load(Path file, ForkJoinPool pool) throws IOException {
+        return load(file, 0, 0, pool);
+    }
+
+    // Parses only the part of the file from `fromOffset` on (which must be the start of a line), e.g. the rows
+    // added after a snapshot. Malformed lines are numbered as if `linesBefore` lines came before the offset.
+    public static LoadResult load(Path file, long fromOffset, long linesBefore) throws IOException {
+        return load(file, fromOffset, linesBefore, ForkJoinPool.commonPool());
+    }
+
+    public static LoadResult load(Path file, long fromOffset, long linesBefore, ForkJoinPool pool)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<ChunkTask> tasks = new ArrayList<>();
+            for (long[] range : splitIntoChunks(channel, fromOffset, size, pool.getParallelism())) {
+                tasks.add(new ChunkTask(channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]),
+                        (byte) '|'));
+            }
+
+            // Parse every chunk in parallel, then stitch the results back together in file order
+            TransactionStore store = new TransactionStore();
+            List<MalformedLine> malformed = new ArrayList<>();
+            long lines = linesBefore;
+            for (ChunkTask task : tasks) {
+                pool.execute(task);
+            }
+            for (ChunkTask task : tasks) {
+                ChunkResult chunk = task.join();
+                store.appendAll(chunk.store);
+                for (MalformedLine bad : chunk.malformed) {
+                    malformed.add(new MalformedLine(lines + bad.lineNumber, bad.text, bad.reason));
+                }
+                lines += chunk.lineCount;
+            }
+            return new LoadResult(store, malformed, lines - linesBefore);
+        }
+    }
+
+    // === PARSE TEXT ALREADY IN MEMORY ===
+    // Parses lines that are not in the ledger file yet, such as records replayed from the write-ahead log
+    public static LoadResult parse(byte[] text) {
+        return parse(ByteBuffer.wrap(text), (byte) '|');
+    }
+
+    // Same, for lines whose fields are separated by `separator` instead of '|' (used by BulkImporter).
+    // With ',' the text is read as CSV: a field may be wrapped in double quotes (so it can contain commas),
+    // and "" inside quotes stands for one quote character. Lines always end at '\n'.
+    public static LoadResult parse(ByteBuffer text, byte separator) {
+        ChunkResult chunk = new ChunkTask(text, separator).compute();
+        return new LoadResult(chunk.store, chunk.malformed, chunk.lineCount);
+    }
+
+    // === CHUNKING ===
+    // Picks chunk boundaries so that every chunk ends just after a '\n' (or at end of file)
+    private static List<long[]> splitIntoChunks(FileChannel channel, long from, long size, int parallelism)
+            throws IOException {
+        long target = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, (size - from) / (parallelism * 4L) + 1));
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long start = from;
+        while (start < size) {
+            long end = Math.min(size, start + target);
+            // Walk forward from the tentative end until the current line is finished
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            ranges.add(new long[]{start, Math.min(end, size)});
+            start = end;
+        }
+        return ranges;
+    }
+
+    // === PER-CHUNK PARSING ===
+
+    private static class ChunkResult {
+        final TransactionStore store = new TransactionStore();
+        final FieldIds descriptionIds = new FieldIds(store.getDescriptions());
+        final FieldIds vendorIds = new FieldIds(store.getVendors());
+        final List<MalformedLine> malformed = new ArrayList<>();
+        long lineCount = 0;
+    }
+
+    private static class ChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final byte separator;
+        private final boolean csv;
+
+        ChunkTask(ByteBuffer buffer, byte separator) {
+            this.buffer = buffer;
+            this.separator = separator;
+            this.csv = separator == ',';
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult();
+            byte[] line = new byte[256]; // Scratch copy of the current line, reused for every line
+            int[] pipes = new int[4];    // Offsets of the four separators ('|', or ',' for CSV) in the current line
+            int limit = buffer.limit();
+            int pos = 0;
+
+            while (pos < limit) {
+                // Copy one line into the scratch buffer, noting where the separators are
+                int length = 0;
+                int pipeCount = 0;
+                boolean quoted = false;
+                boolean pipeInField = false;
+                while (pos < limit) {
+                    byte b = buffer.get(pos++);
+                    if (b == '\n') {
+                        break;
+                    }
+                    if (csv) {
+                        if (b == '"') {
+                            if (quoted && pos < limit && buffer.get(pos) == '"') {
+                                pos++; // "" inside quotes: keep one quote as text
+                            } else {
+                                quoted = !quoted;
+                                continue;
+                            }
+                        } else if (b == '|') {
+                            pipeInField = true;
+                        }
+                    }
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    if (b == separator && !quoted) {
+                        if (pipeCount < pipes.length) {
+                            pipes[pipeCount] = length;
+                        }
+                        pipeCount++;
+                    }
+                    line[length++] = b;
+                }
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--; // Tolerate Windows line endings
+                }
+                result.lineCount++;
+
+                if (length == 0) {
+                    continue; // Blank lines carry no data, so they are not reported
+                }
+                if (pipeInField) {
+                    reject(result, line, length, "a field contains '|', which the ledger file cannot store");
+                    continue;
+                }
+                if (pipeCount != 4) {
+                    reject(result, line, length, "expected 5 fields but found " + (pipeCount + 1));
+                    continue;
+                }
+                long cents = Money.parseCents(line, pipes[3] + 1, length);
+                if (cents == Money.INVALID) {
+                    reject(result, line, length, "amount is not a number");
+                    continue;
+                }
+                int epochDay = LedgerDates.parseEpochDay(line, 0, pipes[0]);
+                if (epochDay == LedgerDates.INVALID) {
+                    reject(result, line, length, "date is not YYYY-MM-DD");
+                    continue;
+                }
+                int secondOfDay = LedgerDates.parseSecondOfDay(line, pipes[0] + 1, pipes[1]);
+                if (secondOfDay == LedgerDates.INVALID) {
+                    reject(result, line, length, "time is not HH:MM:SS");
+                    continue;
+                }
+                result.store.appendEncoded(epochDay, secondOfDay,
+                        result.descriptionIds.id(line, pipes[1] + 1, pipes[2]),
+                        result.vendorIds.id(line, pipes[2] + 1, pipes[3]),
+                        cents);
+            }
+            return result;
+        }
+
+        private void reject(ChunkResult result, byte[] line, int length, String reason) {
+            result.malformed.add(new MalformedLine(result.lineCount, field(line, 0, length), reason));
+        }
+    }
+
+    private static String field(byte[] line, int from, int to) {
+        return new String(line, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    // === FIELD DICTIONARY LOOKUP ===
+    // Finds a field's dictionary id straight from its UTF-8 bytes in the line buffer, so a description or vendor
+    // that was seen before in the chunk costs a hash and a byte compare; a String is only made the first time.
+    // Open addressing over flat arrays, like TransactionKeySet; one per column per chunk, used by one thread.
+    private static class FieldIds {
+        private final StringDictionary dictionary;
+        private byte[] text = new byte[16 * 1024]; // Bytes of every distinct value, back to back
+        private int textLength = 0;
+        private int[] starts = new int[257];       // Value i is text[starts[i] .. starts[i + 1])
+        private int[] hashes = new int[256];
+        private int[] ids = new int[256];          // Dictionary id of value i
+        private int count = 0;
+        private int[] slots = new int[512];        // Value index + 1, or 0 for an empty slot; at most half full
+
+        FieldIds(StringDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        int id(byte[] line, int from, int to) {
+            int hash = hash(line, from, to);
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            for (int entry = slots[slot]; entry != 0; slot = (slot + 1) & mask, entry = slots[slot]) {
+                int value = entry - 1;
+                if (hashes[value] == hash
+                        && Arrays.equals(text, starts[value], starts[value + 1], line, from, to)) {
+                    return ids[value];
+                }
+            }
+            return add(line, from, to, hash, slot);
+        }
+
+        private int add(byte[] line, int from, int to, int hash, int slot) {
+            int length = to - from;
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+            System.arraycopy(line, from, text, textLength, length);
+            textLength += length;
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                hashes = Arrays.copyOf(hashes, count * 2);
+                starts = Arrays.copyOf(starts, count * 2 + 1);
+            }
+            int id = dictionary.encode(field(line, from, to)); // The only String made for this value
+            ids[count] = id;
+            hashes[count] = hash;
+            starts[count + 1] = textLength;
+            slots[slot] = ++count;
+            if (count * 2 > slots.length) {
+                rehash(slots.length * 2);
+            }
+            return id;
+        }
+
+        private void rehash(int capacity) {
+            slots = new int[capacity];
+            int mask = capacity - 1;
+            for (int value = 0; value < count; value++) {
+                int slot = hashes[value] & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value + 1;
+            }
+        }
+
+        private static int hash(byte[] bytes, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16) * 0x45d9f3b; // Spread the low bits used to pick a slot
+        }
+    }
+}
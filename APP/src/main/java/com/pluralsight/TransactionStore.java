@@ -0,0 +1,272 @@
+package com.pluralsight;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Column-oriented storage for ledger rows.
+// Instead of one Transactions object (four Strings and a double) per row, every field lives in its own
+// primitive array: dates as epoch days, times as seconds since midnight, amounts as whole cents,
+// and vendor/description as ids into a StringDictionary.
+//
+// The columns are split into fixed-size segments that are never moved once full. (The first segment
+// starts small and doubles until it is full, so a store holding a few rows, e.g. one parsed request,
+// stays small; a grown segment is a copy, made in its constructor and put in a new copy of the segment
+// directory, so a reader still on an older row sees either the old segment or the complete new one.)
+// Appends are serialized by a lock and only then publish the new size, so readers need no lock:
+// any row below size() is complete and will never change.
+public class TransactionStore {
+
+    private static final int SEGMENT_BITS = 16;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS; // 65,536 rows per segment
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int FIRST_SEGMENT_CAPACITY = 256;
+
+    // One block of rows, column by column
+    private static class Segment {
+        final int[] epochDays;
+        final int[] secondsOfDay;
+        final long[] amountCents;
+        final int[] vendorIds;
+        final int[] descriptionIds;
+
+        Segment(int capacity) {
+            epochDays = new int[capacity];
+            secondsOfDay = new int[capacity];
+            amountCents = new long[capacity];
+            vendorIds = new int[capacity];
+            descriptionIds = new int[capacity];
+        }
+
+        // A bigger copy holding the first `rows` rows of `from`. Copied here rather than after construction,
+        // so the final fields make the copied rows visible to any thread that can see the new segment.
+        Segment(Segment from, int capacity, int rows) {
+            this(capacity);
+            System.arraycopy(from.epochDays, 0, epochDays, 0, rows);
+            System.arraycopy(from.secondsOfDay, 0, secondsOfDay, 0, rows);
+            System.arraycopy(from.amountCents, 0, amountCents, 0, rows);
+            System.arraycopy(from.vendorIds, 0, vendorIds, 0, rows);
+            System.arraycopy(from.descriptionIds, 0, descriptionIds, 0, rows);
+        }
+    }
+
+    // === COLUMNS ===
+    private volatile Segment[] segments = new Segment[4];
+    private volatile int size = 0; // Written last on every append; readers go by this
+
+    private final StringDictionary vendors = new StringDictionary();
+    private final StringDictionary descriptions = new StringDictionary();
+
+    // === APPEND ===
+    // Adds a row and returns its row number. Throws IllegalArgumentException for an invalid date or time.
+    public int append(Transactions t) {
+        int epochDay = LedgerDates.parseEpochDay(t.getDate());
+        if (epochDay == LedgerDates.INVALID) {
+            throw new IllegalArgumentException("Invalid date: " + t.getDate());
+        }
+        int secondOfDay = LedgerDates.parseSecondOfDay(t.getTime());
+        if (secondOfDay == LedgerDates.INVALID) {
+            throw new IllegalArgumentException("Invalid time: " + t.getTime());
+        }
+        return append(epochDay, secondOfDay, t.getDescription(), t.getVendor(), t.getAmountCents());
+    }
+
+    public synchronized int append(int epochDay, int secondOfDay, String description, String vendor, long cents) {
+        int row = size;
+        put(row, epochDay, secondOfDay, cents, vendors.encode(vendor), descriptions.encode(description));
+        size = row + 1; // Publish
+        return row;
+    }
+
+    // Same, for vendor and description ids already encoded in this store's dictionaries (used by the loader,
+    // which finds the ids from the raw bytes of each field)
+    synchronized int appendEncoded(int epochDay, int secondOfDay, int descriptionId, int vendorId, long cents) {
+        int row = size;
+        put(row, epochDay, secondOfDay, cents, vendorId, descriptionId);
+        size = row + 1; // Publish
+        return row;
+    }
+
+    // Copies every row of another store onto the end of this one (used to merge loader chunks).
+    // Each distinct string is looked up once, not once per row.
+    public synchronized void appendAll(TransactionStore other) {
+        int[] vendorMap = remap(other.vendors, vendors);
+        int[] descriptionMap = remap(other.descriptions, descriptions);
+        int base = size;
+        int count = other.size;
+        for (int row = 0; row < count; row++) {
+            put(base + row, other.getEpochDay(row), other.getSecondOfDay(row), other.getAmountCents(row),
+                    vendorMap[other.getVendorId(row)], descriptionMap[other.getDescriptionId(row)]);
+        }
+        size = base + count; // Publish all of them at once
+    }
+
+    private static int[] remap(StringDictionary from, StringDictionary to) {
+        int[] map = new int[from.size()];
+        for (int id = 0; id < map.length; id++) {
+            map[id] = to.encode(from.decode(id));
+        }
+        return map;
+    }
+
+    // Writes one row's values, creating its segment if needed (caller holds the lock)
+    private void put(int row, int epochDay, int secondOfDay, long cents, int vendorId, int descriptionId) {
+        int index = row >>> SEGMENT_BITS;
+        Segment[] current = segments;
+        if (index == current.length) {
+            current = Arrays.copyOf(current, current.length * 2); // Only the directory is copied
+        }
+        int at = row & SEGMENT_MASK;
+        if (current[index] == null) {
+            current[index] = new Segment(index == 0 ? FIRST_SEGMENT_CAPACITY : SEGMENT_SIZE);
+        } else if (at == current[index].epochDays.length) {
+            // Only the first segment grows. Readers may be using the directory this very moment, for rows the
+            // old copy already has, so the grown copy goes into a new directory (published just below)
+            // instead of replacing the old copy in place
+            if (current == segments) {
+                current = current.clone();
+            }
+            current[index] = new Segment(current[index], Math.min(SEGMENT_SIZE, at * 2), at);
+        }
+        segments = current; // Publishes a new or grown segment before the size that covers its rows
+        Segment segment = current[index];
+        segment.epochDays[at] = epochDay;
+        segment.secondsOfDay[at] = secondOfDay;
+        segment.amountCents[at] = cents;
+        segment.vendorIds[at] = vendorId;
+        segment.descriptionIds[at] = descriptionId;
+    }
+
+    // === COLUMN ACCESS ===
+    // Row numbers must be below a size() the caller has already read
+
+    public int size() {
+        return size;
+    }
+
+    public int getEpochDay(int row) {
+        return segments[row >>> SEGMENT_BITS].epochDays[row & SEGMENT_MASK];
+    }
+
+    public int getSecondOfDay(int row) {
+        return segments[row >>> SEGMENT_BITS].secondsOfDay[row & SEGMENT_MASK];
+    }
+
+    public long getAmountCents(int row) {
+        return segments[row >>> SEGMENT_BITS].amountCents[row & SEGMENT_MASK];
+    }
+
+    public int getVendorId(int row) {
+        return segments[row >>> SEGMENT_BITS].vendorIds[row & SEGMENT_MASK];
+    }
+
+    public int getDescriptionId(int row) {
+        return segments[row >>> SEGMENT_BITS].descriptionIds[row & SEGMENT_MASK];
+    }
+
+    public String getVendor(int row) {
+        return vendors.decode(getVendorId(row));
+    }
+
+    public String getDescription(int row) {
+        return descriptions.decode(getDescriptionId(row));
+    }
+
+    public StringDictionary getVendors() {
+        return vendors;
+    }
+
+    public StringDictionary getDescriptions() {
+        return descriptions;
+    }
+
+    // === ROW ACCESS ===
+    // Rebuilds a Transactions object for one row (created on demand, not stored)
+    public Transactions get(int row) {
+        int currentSize = size;
+        if (row < 0 || row >= currentSize) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + currentSize);
+        }
+        return Transactions.ofCents(LedgerDates.formatDate(getEpochDay(row)), LedgerDates.formatTime(getSecondOfDay(row)),
+                getDescription(row), getVendor(row), getAmountCents(row));
+    }
+
+    // Appends one row in the same "date|time|description|vendor| $amount" form as Transactions.toString(),
+    // straight from the columns (no Transactions object, nothing allocated)
+    public void appendRow(int row, StringBuilder out) {
+        LedgerDates.appendDate(out, getEpochDay(row));
+        out.append('|');
+        LedgerDates.appendTime(out, getSecondOfDay(row));
+        out.append('|').append(getDescription(row)).append('|').append(getVendor(row)).append("| $");
+        Money.appendCents(out, getAmountCents(row));
+    }
+
+    // === SNAPSHOT ===
+    // Dictionaries, then the row count, then each segment's columns as whole arrays
+    void writeSnapshot(LedgerSnapshot.Output out) throws IOException {
+        vendors.writeSnapshot(out);
+        descriptions.writeSnapshot(out);
+        int rows = size;
+        out.putInt(rows);
+        for (int start = 0; start < rows; start += SEGMENT_SIZE) {
+            Segment segment = segments[start >>> SEGMENT_BITS];
+            int count = Math.min(SEGMENT_SIZE, rows - start);
+            out.putInts(segment.epochDays, count);
+            out.putInts(segment.secondsOfDay, count);
+            out.putLongs(segment.amountCents, count);
+            out.putInts(segment.vendorIds, count);
+            out.putInts(segment.descriptionIds, count);
+        }
+    }
+
+    static TransactionStore readSnapshot(ByteBuffer in) {
+        TransactionStore store = new TransactionStore();
+        store.vendors.readSnapshot(in);
+        store.descriptions.readSnapshot(in);
+        int rows = in.getInt();
+        Segment[] segments = new Segment[Math.max(4, (rows >>> SEGMENT_BITS) + 1)];
+        for (int start = 0; start < rows; start += SEGMENT_SIZE) {
+            Segment segment = new Segment(SEGMENT_SIZE);
+            int count = Math.min(SEGMENT_SIZE, rows - start);
+            LedgerSnapshot.getInts(in, segment.epochDays, count);
+            LedgerSnapshot.getInts(in, segment.secondsOfDay, count);
+            LedgerSnapshot.getLongs(in, segment.amountCents, count);
+            LedgerSnapshot.getInts(in, segment.vendorIds, count);
+            LedgerSnapshot.getInts(in, segment.descriptionIds, count);
+            segments[start >>> SEGMENT_BITS] = segment;
+        }
+        store.segments = segments;
+        store.size = rows;
+        return store;
+    }
+
+    // Read-only List view of the rows present right now; each get() builds the Transactions for that row.
+    // Rows appended later don't show up in it, so iterating it is safe while other threads append.
+    public List<Transactions> asList() {
+        return new RowView(size);
+    }
+
+    private class RowView extends AbstractList<Transactions> implements RandomAccess {
+        private final int rows;
+
+        RowView(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Transactions get(int index) {
+            if (index >= rows) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + rows);
+            }
+            return TransactionStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return rows;
+        }
+    }
+}
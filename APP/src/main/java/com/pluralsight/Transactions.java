@@ -8,16 +8,27 @@ public class Transactions {
     private String time;         // The time the transaction occurred (format: HH:MM:SS)
     private String description;  // A short description of the transaction (e.g., "Grocery shopping")
     private String vendor;       // The name of the vendor or recipient (e.g., "Walmart")
-    private double amount;       // The amount of the transaction (positive for deposits, negative for payments)
+    private long amountCents;    // The amount in whole cents (positive for deposits, negative for payments), see Money
 
     // === CONSTRUCTOR ===
-    // Initializes a transaction object with the provided values
+    // Initializes a transaction object with the provided values; the amount is in dollars and is rounded
+    // to the nearest cent
     public Transactions(String date, String time, String description, String vendor, double amount) {
+        this(date, time, description, vendor, Money.fromDouble(amount));
+    }
+
+    private Transactions(String date, String time, String description, String vendor, long amountCents) {
         this.date = date;               // Assigns the date to the instance variable
         this.time = time;               // Assigns the time to the instance variable
         this.description = description; // Assigns the description
         this.vendor = vendor;           // Assigns the vendor name
-        this.amount = amount;           // Assigns the transaction amount
+        this.amountCents = amountCents; // Assigns the exact transaction amount
+    }
+
+    // Same, with the amount already in cents (a static method so that e.g. an int of dollars can't
+    // silently pick the cents version)
+    public static Transactions ofCents(String date, String time, String description, String vendor, long amountCents) {
+        return new Transactions(date, time, description, vendor, amountCents);
     }
 
     // === GETTERS ===
@@ -40,15 +51,26 @@ public class Transactions {
     }
 
     public double getAmount() {
-        return amount; // Returns the transaction amount (positive or negative)
+        return Money.toDouble(amountCents); // Returns the transaction amount in dollars (positive or negative)
+    }
+
+    public long getAmountCents() {
+        return amountCents; // Returns the exact amount, for sums and comparisons
     }
 
     // === OVERRIDE & TO STRING METHOD ===
     // The @Override annotation tells the compiler that this method overrides the default toString()
     // Converts the transaction into a bar-delimited string formatted for storage in a CSV file.
     // Includes formatting to show amount with 2 decimal places and a dollar sign.
+    // Built with one StringBuilder and Money's formatter (String.format is far slower, and this runs for
+    // every record that is saved).
     @Override
     public String toString() {
-        return date + "|" + time + "|" + description + "|" + vendor + "| $" + String.format("%.2f", amount);
+        StringBuilder line = new StringBuilder(date.length() + time.length() + description.length()
+                + vendor.length() + 28);
+        line.append(date).append('|').append(time).append('|').append(description).append('|').append(vendor)
+                .append("| $");
+        Money.appendCents(line, amountCents);
+        return line.toString();
     }
 }
@@ -0,0 +1,213 @@
+package com.pluralsight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Append-only log that sits in front of the CSV file. Every new transaction is written here first,
+// framed so that a record cut short by a crash can be recognised and thrown away:
+//
+//   record:  payload length (int) | sequence number (long) | CRC32 of sequence + payload (int) | payload
+//
+// The payload is the record's CSV line (UTF-8, no newline). Sequence numbers only ever go up,
+// so after a checkpoint the records still to be copied into the CSV are simply those above its number.
+public class WriteAheadLog implements Closeable {
+
+    static final int RECORD_HEADER_BYTES = 16;
+    static final int MAX_PAYLOAD_BYTES = 1 << 20; // Anything longer is garbage, not a CSV line
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024); // Frames waiting to be written
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer sequenceBytes = ByteBuffer.allocate(Long.BYTES); // Reused for each checksum
+    private long lastSequence;
+    private final long discardedBytes;
+
+    // === OPEN (AND RECOVER) ===
+    // Opens the log, creating it if needed. Scans every record first: the log is cut off at the first
+    // record that is incomplete, fails its checksum, or breaks the sequence order (a torn tail),
+    // and new records are appended after the last good one.
+    public static WriteAheadLog open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            Scan scan = scan(channel, Long.MAX_VALUE, null);
+            long size = channel.size();
+            if (scan.validLength < size) {
+                channel.truncate(scan.validLength);
+                channel.force(false);
+            }
+            channel.position(scan.validLength);
+            return new WriteAheadLog(channel, scan.lastSequence, size - scan.validLength);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private WriteAheadLog(FileChannel channel, long lastSequence, long discardedBytes) {
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+        this.discardedBytes = discardedBytes;
+    }
+
+    // The log file that belongs to a ledger file
+    public static Path pathFor(Path ledgerFile) {
+        return ledgerFile.resolveSibling(ledgerFile.getFileName() + ".wal");
+    }
+
+    // === GETTERS ===
+
+    // Sequence number of the last good record (0 if the log is empty)
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    // Bytes of torn tail that were cut off when the log was opened
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    // === APPEND ===
+    // Frames one record into the write buffer; nothing reaches the file until flush()
+    public void append(long sequence, byte[] payload) throws IOException {
+        if (sequence <= lastSequence) {
+            throw new IllegalArgumentException("Sequence " + sequence + " is not after " + lastSequence);
+        }
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes is too long");
+        }
+        if (buffer.remaining() < RECORD_HEADER_BYTES + payload.length) {
+            flush();
+        }
+        crc.reset();
+        crc.update(sequenceBytes.putLong(0, sequence).array());
+        crc.update(payload);
+        if (buffer.remaining() < RECORD_HEADER_BYTES + payload.length) {
+            // Bigger than the whole buffer: write it on its own
+            ByteBuffer single = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+            single.putInt(payload.length).putLong(sequence).putInt((int) crc.getValue()).put(payload).flip();
+            writeFully(single);
+        } else {
+            buffer.putInt(payload.length).putLong(sequence).putInt((int) crc.getValue()).put(payload);
+        }
+        lastSequence = sequence;
+    }
+
+    // === FLUSH / FORCE ===
+    // Hands buffered records to the OS. If the write fails part way, the bytes not written yet stay buffered
+    // (and the ones already written are not repeated), so a later flush carries on where this one stopped.
+    public void flush() throws IOException {
+        buffer.flip();
+        try {
+            writeFully(buffer);
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    // Forces everything handed to the OS onto the storage device
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    // === READ BACK ===
+    // Payloads of every record numbered above `afterSequence`, in log order (flushes first)
+    public List<byte[]> readAfter(long afterSequence) throws IOException {
+        flush();
+        List<byte[]> payloads = new ArrayList<>();
+        scan(channel, afterSequence, payloads);
+        return payloads;
+    }
+
+    // === RESET ===
+    // Empties the log once its records are safely in the CSV file. Sequence numbers keep counting up.
+    public void reset() throws IOException {
+        flush();
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(false);
+    }
+
+    public long size() throws IOException {
+        return channel.size() + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    // === SCAN ===
+
+    private static class Scan {
+        long validLength = 0;
+        long lastSequence = 0;
+    }
+
+    // Walks the records from the start of the file and stops at the first bad one.
+    // Collects the payloads numbered above `afterSequence` if `payloads` is not null.
+    private static Scan scan(FileChannel channel, long afterSequence, List<byte[]> payloads) throws IOException {
+        Scan scan = new Scan();
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        long position = 0;
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            long sequence = header.getLong();
+            int expectedCrc = header.getInt();
+            if (length < 0 || length > MAX_PAYLOAD_BYTES || sequence <= scan.lastSequence
+                    || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            readFully(channel, ByteBuffer.wrap(payload), position + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(longBytes(sequence));
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                break;
+            }
+            if (payloads != null && sequence > afterSequence) {
+                payloads.add(payload);
+            }
+            position += RECORD_HEADER_BYTES + length;
+            scan.validLength = position;
+            scan.lastSequence = sequence;
+        }
+        return scan;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer into, long position) throws IOException {
+        while (into.hasRemaining()) {
+            int read = channel.read(into, position + into.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of log file");
+            }
+        }
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+}
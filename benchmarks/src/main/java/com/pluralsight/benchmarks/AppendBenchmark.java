@@ -0,0 +1,71 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.GroupCommitPolicy;
+import com.pluralsight.Ledger;
+import com.pluralsight.Transactions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Append throughput: durable-on-return, fire-and-forget with a completion handle,
+// and the original open/write/close-per-record path for comparison.
+// Run with -t to see how group commit scales with concurrent writers (e.g. -t 1, -t 4, -t 16).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppendBenchmark {
+
+    @Param({"true", "false"})
+    public boolean fsync;
+
+    private Path csv;
+    private Ledger ledger;
+    private PrintStream console;
+    private Transactions sample;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(10_000, 100, 30);
+        ledger = new Ledger(csv.toString(), new GroupCommitPolicy(256, 0, fsync));
+        sample = new SyntheticLedger(1, 100, 1, 7).row(new Random(7), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    // Waits until the record's batch is on disk
+    @Benchmark
+    public void addTransactions() throws IOException {
+        ledger.addTransactions(sample);
+    }
+
+    // Returns as soon as the record is queued
+    @Benchmark
+    public CompletableFuture<Void> addTransactionsAsync() {
+        return ledger.addTransactionsAsync(sample);
+    }
+
+    // What every append used to cost: open the file, write one line, flush, close
+    @Benchmark
+    public void perRecordOpenClose() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(csv.resolveSibling("legacy.csv").toString(), true))) {
+            bw.write(sample.toString());
+            bw.newLine();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.pluralsight.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+// Shared helpers: temporary ledger files and a console that discards report output
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    // Generates a CSV ledger in a fresh temporary directory
+    static Path generate(int rows, int vendors, int spreadDays) throws IOException {
+        Path dir = Files.createTempDirectory("ledger-bench");
+        return new SyntheticLedger(rows, vendors, spreadDays, 42).writeCsv(dir.resolve("transactions.csv"));
+    }
+
+    // Deletes a file and its temporary directory, including anything written next to it (subdirectories too)
+    static void delete(Path file) throws IOException {
+        if (file == null) {
+            return;
+        }
+        try (var entries = Files.walk(file.getParent())) {
+            for (Path entry : (Iterable<Path>) entries.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(entry); // Deepest first, so each directory is empty by the time it's reached
+            }
+        }
+    }
+
+    // Swaps System.out for a stream that throws the report text away; returns the original
+    static PrintStream silenceConsole() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
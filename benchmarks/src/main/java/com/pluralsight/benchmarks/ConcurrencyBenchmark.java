@@ -0,0 +1,65 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.GroupCommitPolicy;
+import com.pluralsight.Ledger;
+import com.pluralsight.LedgerQuery;
+import com.pluralsight.QueryCursor;
+import com.pluralsight.Transactions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Writers appending while readers run queries against the same Ledger.
+// Scale the thread counts with -tg writers,readers (e.g. -tg 1,1 / -tg 2,6 / -tg 4,12) to compare core counts.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ConcurrencyBenchmark {
+
+    private Path csv;
+    private Ledger ledger;
+    private PrintStream console;
+    private Transactions sample;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(200_000, 1000, 365);
+        ledger = new Ledger(csv.toString(), new GroupCommitPolicy(1024, 0, false));
+        sample = new SyntheticLedger(1, 1000, 1, 7).row(new Random(7), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Object writer() {
+        return ledger.addTransactionsAsync(sample);
+    }
+
+    // Reads the 50 newest deposits for a vendor keyword
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public int reader() {
+        QueryCursor cursor = ledger.query(LedgerQuery.builder().vendorContains("market").deposits().newestFirst().build());
+        int seen = 0;
+        while (seen < 50 && cursor.nextRow() >= 0) {
+            seen++;
+        }
+        return seen;
+    }
+}
@@ -0,0 +1,181 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.GroupCommitPolicy;
+import com.pluralsight.Ledger;
+import com.pluralsight.LedgerQuery;
+import com.pluralsight.QueryCursor;
+import com.pluralsight.StringDictionary;
+import com.pluralsight.Transactions;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stress check for concurrent use of one Ledger (not a JMH benchmark): writer threads append while reader
+// threads iterate snapshots and run queries, and one more pair of threads hammers a StringDictionary the
+// way the store uses it (one thread encoding, another looking values up and decoding the ids it gets).
+// Afterwards the totals are verified and the file is reloaded to check that every row reached it.
+// Prints what it saw and exits with status 1 if anything went wrong.
+//
+// Run: java -cp benchmarks/target/benchmarks.jar com.pluralsight.benchmarks.ConcurrencyStress [writers] [readers] [rows]
+public class ConcurrencyStress {
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        PrintStream console = BenchmarkFiles.silenceConsole();
+        Path csv = BenchmarkFiles.generate(0, 1000, 365);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        try {
+            long[] stats = run(csv, writers, readers, rows, failures);
+            failures.addAll(checkDictionary(rows));
+
+            // Everything appended must be in the file after a clean close
+            Ledger reopened = new Ledger(csv.toString());
+            int reloaded = reopened.getTransactions().size();
+            reopened.close();
+            if (reloaded != rows) {
+                failures.add(new AssertionError("Reloaded " + reloaded + " rows, expected " + rows));
+            }
+
+            console.println(writers + " writers appended " + rows + " rows while " + readers + " readers saw "
+                    + stats[0] + " rows in snapshots and " + stats[1] + " query matches; reloaded " + reloaded);
+        } finally {
+            System.setOut(console);
+            BenchmarkFiles.delete(csv);
+        }
+
+        for (Throwable failure : failures) {
+            failure.printStackTrace();
+        }
+        console.println(failures.isEmpty() ? "OK" : failures.size() + " failure(s)");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    // === LEDGER ===
+    // Returns {rows seen while iterating snapshots, rows returned by queries}
+    private static long[] run(Path csv, int writers, int readers, int rows, ConcurrentLinkedQueue<Throwable> failures)
+            throws IOException, InterruptedException {
+        Ledger ledger = new Ledger(csv.toString(), new GroupCommitPolicy(1024, 0, false));
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong snapshotRows = new AtomicLong();
+        AtomicLong queryRows = new AtomicLong();
+
+        List<Thread> writerThreads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int first = w * rows / writers;
+            int end = (w + 1) * rows / writers;
+            SyntheticLedger generator = new SyntheticLedger(rows, 1000, 365, w);
+            writerThreads.add(start("writer-" + w, failures, () -> {
+                Random random = new Random(first);
+                List<CompletableFuture<Void>> pending = new ArrayList<>();
+                for (int i = first; i < end; i++) {
+                    pending.add(ledger.addTransactionsAsync(generator.row(random, i)));
+                }
+                CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+            }));
+        }
+
+        List<Thread> readerThreads = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            boolean iterate = r % 2 == 0; // Half iterate whole snapshots, half run queries
+            readerThreads.add(start("reader-" + r, failures, () -> {
+                while (writing.get()) {
+                    if (iterate) {
+                        long seen = 0;
+                        for (Transactions t : ledger.getTransactions()) {
+                            if (t.getDate() == null || t.getVendor() == null) {
+                                throw new AssertionError("Incomplete row in snapshot: " + t);
+                            }
+                            seen++;
+                        }
+                        snapshotRows.addAndGet(seen);
+                    } else {
+                        QueryCursor cursor = ledger.query(LedgerQuery.builder().vendorContains("market").deposits()
+                                .newestFirst().build());
+                        long seen = 0;
+                        while (cursor.hasNext()) {
+                            Transactions t = cursor.next();
+                            if (t.getAmount() <= 0 || !t.getVendor().toLowerCase().contains("market")) {
+                                throw new AssertionError("Query returned a row it should not have: " + t);
+                            }
+                            seen++;
+                        }
+                        queryRows.addAndGet(seen);
+                    }
+                }
+            }));
+        }
+
+        for (Thread t : writerThreads) {
+            t.join();
+        }
+        writing.set(false);
+        for (Thread t : readerThreads) {
+            t.join();
+        }
+
+        if (ledger.getTransactions().size() != rows) {
+            failures.add(new AssertionError("Ledger has " + ledger.getTransactions().size() + " rows, expected " + rows));
+        }
+        for (String problem : ledger.verifyAggregates()) {
+            failures.add(new AssertionError("Totals: " + problem));
+        }
+        ledger.close();
+        return new long[]{snapshotRows.get(), queryRows.get()};
+    }
+
+    // === DICTIONARY ===
+    // One thread encodes new values while another looks each one up and decodes whatever id it got back:
+    // an id from lookup() must always decode to the same value
+    private static List<Throwable> checkDictionary(int values) throws InterruptedException {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        StringDictionary dictionary = new StringDictionary();
+        AtomicBoolean encoding = new AtomicBoolean(true);
+        Thread encoder = start("encoder", failures, () -> {
+            for (int i = 0; i < values; i++) {
+                dictionary.encode("value " + i);
+            }
+            encoding.set(false);
+        });
+        Thread reader = start("decoder", failures, () -> {
+            Random random = new Random(1);
+            while (encoding.get()) {
+                int size = dictionary.size();
+                String value = "value " + random.nextInt(Math.max(size, 1) + 64); // Some not added yet
+                int id = dictionary.lookup(value);
+                if (id >= 0 && !value.equals(dictionary.decode(id))) {
+                    throw new AssertionError("Id " + id + " of '" + value + "' decodes to something else");
+                }
+            }
+        });
+        encoder.join();
+        reader.join();
+        return new ArrayList<>(failures);
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private static Thread start(String name, ConcurrentLinkedQueue<Throwable> failures, Work work) {
+        Thread thread = new Thread(() -> {
+            try {
+                work.run();
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+}
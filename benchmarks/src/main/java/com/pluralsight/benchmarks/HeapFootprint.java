@@ -0,0 +1,100 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.TransactionStore;
+import com.pluralsight.Transactions;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Heap footprint of the same rows held two ways (not a JMH benchmark): the List<Transactions> the ledger
+// used to keep, with its own Strings for every field the way the old line-by-line loader made them, and
+// the TransactionStore columns. Each is measured as the growth in used heap, after repeated System.gc(),
+// while the other one is unreachable. Includes array growth slack, which is what the process really pays.
+//
+// Run: java -Xmx6g -cp benchmarks/target/benchmarks.jar com.pluralsight.benchmarks.HeapFootprint
+//          [rows] [descriptions] [vendors]
+// (defaults 10,000,000 rows, 1,000 distinct descriptions and 5,000 distinct vendors)
+public class HeapFootprint {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int descriptions = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int vendors = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        long listBytes = measure(() -> buildList(rows, descriptions, vendors));
+        long storeBytes = measure(() -> buildStore(rows, descriptions, vendors));
+
+        System.out.println(rows + " rows, " + descriptions + " descriptions, " + vendors + " vendors");
+        System.out.println("  List<Transactions>: " + megabytes(listBytes) + " MB (" + listBytes / rows + " B/row)");
+        System.out.println("  TransactionStore:   " + megabytes(storeBytes) + " MB (" + storeBytes / rows + " B/row)");
+        System.out.printf("  %.1fx smaller%n", (double) listBytes / storeBytes);
+    }
+
+    // === BUILD ===
+    // Both get the same rows from the same seed; every field is a fresh String, as parsing a file gives
+
+    private static List<Transactions> buildList(int rows, int descriptions, int vendors) {
+        Random random = new Random(42);
+        List<Transactions> list = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            list.add(row(random, descriptions, vendors));
+        }
+        return list;
+    }
+
+    private static TransactionStore buildStore(int rows, int descriptions, int vendors) {
+        Random random = new Random(42);
+        TransactionStore store = new TransactionStore();
+        for (int i = 0; i < rows; i++) {
+            store.append(row(random, descriptions, vendors));
+        }
+        return store;
+    }
+
+    private static Transactions row(Random random, int descriptions, int vendors) {
+        int day = 1 + random.nextInt(28);
+        int month = 1 + random.nextInt(12);
+        int second = random.nextInt(86_400);
+        String date = "2024-" + (month < 10 ? "0" : "") + month + "-" + (day < 10 ? "0" : "") + day;
+        String time = String.format("%02d:%02d:%02d", second / 3600, second / 60 % 60, second % 60);
+        String description = "Description " + random.nextInt(descriptions);
+        String vendor = SyntheticLedger.vendorName(random.nextInt(vendors));
+        return Transactions.ofCents(date, time, description, vendor, random.nextInt(200_000) - 120_000);
+    }
+
+    // === MEASURE ===
+
+    private interface Builder {
+        Object build();
+    }
+
+    // Used heap with the built object reachable, minus used heap before it was built
+    private static long measure(Builder builder) {
+        long before = usedHeap();
+        Object built = builder.build();
+        long after = usedHeap();
+        Reference.reachabilityFence(built); // Keeps it reachable until after the second measurement
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) { // Several passes, until the collector has nothing more to free
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static long megabytes(long bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
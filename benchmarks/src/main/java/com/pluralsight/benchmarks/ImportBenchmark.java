@@ -0,0 +1,65 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.BulkImporter;
+import com.pluralsight.Ledger;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Bulk import of a statement file into an empty ledger, and into a ledger that already has every row
+// (so each line is parsed and rejected as a duplicate). Includes the write-ahead log syncs.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ImportBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean duplicates;
+
+    private Path statement;
+    private Path ledgerFile;
+    private Ledger ledger;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        statement = BenchmarkFiles.generate(rows, 1000, 730);
+    }
+
+    @Setup(Level.Iteration)
+    public void openLedger() throws IOException {
+        ledgerFile = Files.createTempDirectory("ledger-import").resolve("transactions.csv");
+        ledger = new Ledger(ledgerFile.toString());
+        if (duplicates) {
+            new BulkImporter(ledger).importFile(statement);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeLedger() throws IOException {
+        ledger.close();
+        BenchmarkFiles.delete(ledgerFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(statement);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public BulkImporter.Progress importStatement() throws IOException {
+        return new BulkImporter(ledger).importFile(statement);
+    }
+}
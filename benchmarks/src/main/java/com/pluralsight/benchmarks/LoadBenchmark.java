@@ -0,0 +1,62 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.BinaryLedgerFile;
+import com.pluralsight.Ledger;
+import com.pluralsight.TransactionLoader;
+import com.pluralsight.TransactionStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Startup cost: building a Ledger from its CSV file, the bare parallel loader, and the binary format
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LoadBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"1000"})
+    public int vendors;
+
+    @Param({"730"})
+    public int spreadDays;
+
+    private Path csv;
+    private Path binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = BenchmarkFiles.generate(rows, vendors, spreadDays);
+        binary = csv.resolveSibling("transactions.ldg");
+        BinaryLedgerFile.write(TransactionLoader.load(csv).getStore(), binary);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(csv);
+    }
+
+    // Full Ledger constructor: load plus building every index and the aggregates.
+    // Not closed, since close() would leave a snapshot behind (see StartupBenchmark for that path).
+    @Benchmark
+    public Ledger loadTransactions() {
+        return new Ledger(csv.toString());
+    }
+
+    @Benchmark
+    public TransactionStore parallelCsvLoader() throws IOException {
+        return TransactionLoader.load(csv).getStore();
+    }
+
+    @Benchmark
+    public TransactionStore binaryLoader() throws IOException {
+        return BinaryLedgerFile.read(binary);
+    }
+}
@@ -0,0 +1,76 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Money;
+import com.pluralsight.Transactions;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// Amount parsing and formatting: Money's cents parser and formatter against the double-based code they
+// replaced (strip "$" and ",", Double.parseDouble, String.format("%.2f")).
+// Run with -prof gc to compare bytes allocated per amount.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private final String text = " $-1,176.67";
+    private final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    private final long cents = -117_667;
+    private final double amount = -1176.67;
+    private final StringBuilder line = new StringBuilder(64);
+    private Transactions sample;
+
+    @Setup
+    public void setUp() {
+        sample = Transactions.ofCents("2025-06-01", "12:30:00", "Groceries", "Vendor 1a Market", cents);
+    }
+
+    // === PARSE ===
+
+    @Benchmark
+    public long parseBytes() {
+        return Money.parseCents(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public long parseText() {
+        return Money.parseCents(text);
+    }
+
+    @Benchmark
+    public double parseLegacy() {
+        return Double.parseDouble(text.replace("$", "").replace(",", "").trim());
+    }
+
+    // === FORMAT ===
+
+    // Into a reused builder, as reports do
+    @Benchmark
+    public int format() {
+        line.setLength(0);
+        Money.appendCents(line, cents);
+        return line.length();
+    }
+
+    @Benchmark
+    public String formatLegacy() {
+        return String.format("%.2f", amount);
+    }
+
+    // A whole ledger line, as every saved record is written
+    @Benchmark
+    public String transactionToString() {
+        return sample.toString();
+    }
+
+    @Benchmark
+    public String transactionToStringLegacy() {
+        return sample.getDate() + "|" + sample.getTime() + "|" + sample.getDescription() + "|" + sample.getVendor()
+                + "| $" + String.format("%.2f", sample.getAmount());
+    }
+}
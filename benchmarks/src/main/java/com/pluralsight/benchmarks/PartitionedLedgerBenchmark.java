@@ -0,0 +1,100 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.LedgerQuery;
+import com.pluralsight.Page;
+import com.pluralsight.PartitionedLedger;
+import com.pluralsight.ReportSink;
+import com.pluralsight.Transactions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// PartitionedLedger on a two-year history imported from CSV, with a memory budget of about three months.
+// Month reports load (and evict) single months; balances never load one; appends compact the journal
+// into the month files in the background every maxJournalRows rows, so their cost includes compaction.
+// After the run, the loaded-row count has stayed within the budget (see getLoadedRows).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class PartitionedLedgerBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"730"})
+    public int spreadDays;
+
+    @Param({"10000"})
+    public int maxJournalRows;
+
+    private Path csv;
+    private PartitionedLedger ledger;
+    private PrintStream console;
+    private Transactions sample;
+    private LedgerQuery[] months;
+    private int nextMonth = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(rows, 1000, spreadDays);
+        long budget = (long) rows * 90 / spreadDays;
+        ledger = new PartitionedLedger(csv.resolveSibling("partitioned"), budget, maxJournalRows);
+        ledger.importLedger(csv);
+        sample = new SyntheticLedger(1, 1000, 1, 7).row(new Random(7), 0);
+
+        // The last twelve months, visited round robin so every report but the first few loads a month
+        LocalDate first = LocalDate.now().withDayOfMonth(1);
+        months = new LedgerQuery[12];
+        for (int i = 0; i < months.length; i++) {
+            LocalDate start = first.minusMonths(i);
+            months[i] = LedgerQuery.builder().from(start).to(start.plusMonths(1).minusDays(1)).build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    // One whole month, formatted into a sink that keeps nothing
+    @Benchmark
+    public int monthReport() throws IOException {
+        LedgerQuery q = months[nextMonth++ % months.length];
+        return ledger.report(q, DISCARD, Page.all());
+    }
+
+    // From the manifest and the journal; no month is read
+    @Benchmark
+    public long balance() {
+        return ledger.getBalanceCents();
+    }
+
+    // Queued for the journal; every maxJournalRows appends also start a compaction, which holds up
+    // appends while it switches files
+    @Benchmark
+    public CompletableFuture<Void> append() {
+        return ledger.addTransactionsAsync(sample);
+    }
+
+    private static final ReportSink DISCARD = new ReportSink() {
+        @Override
+        public void writeLine(CharSequence line) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+}
@@ -0,0 +1,89 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Ledger;
+import com.pluralsight.Page;
+import com.pluralsight.ReportSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// The five standard reports (month to date, previous month, year to date, deposits, payments) one after
+// another, as the menu runs them, against the same five as one ReportBatch. Rows go to a sink that keeps
+// nothing. With coldCache the result cache is emptied before every invocation, so each report has to be
+// found from scratch; without it, repeated reports come from the cache. pageRows=50 writes only the first
+// 50 rows of each report, so the numbers show finding the rows rather than formatting a million of them.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ReportBatchBenchmark {
+
+    @Param({"1000000"})
+    public int rows;
+
+    @Param({"730"})
+    public int spreadDays;
+
+    @Param({"true", "false"})
+    public boolean coldCache;
+
+    @Param({"0", "50"})
+    public int pageRows; // 0 = every row
+
+    private Page page;
+
+    private Path csv;
+    private Ledger ledger;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(rows, 1000, spreadDays);
+        ledger = new Ledger(csv.toString());
+        page = pageRows == 0 ? Page.all() : Page.first(pageRows);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyCache() {
+        if (coldCache) {
+            ledger.getResultCache().clear();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public int sequential() throws IOException {
+        return ledger.displayMonthToDate(DISCARD, page)
+                + ledger.displayPreviousMonth(DISCARD, page)
+                + ledger.displayYearToDate(DISCARD, page)
+                + ledger.displayDeposits(DISCARD, page)
+                + ledger.displayPayments(DISCARD, page);
+    }
+
+    @Benchmark
+    public int[] batch() throws IOException {
+        return ledger.standardReports(DISCARD, page).run();
+    }
+
+    private static final ReportSink DISCARD = new ReportSink() {
+        @Override
+        public void writeLine(CharSequence line) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+}
@@ -0,0 +1,116 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Ledger;
+import com.pluralsight.Page;
+import com.pluralsight.ReportSink;
+import com.pluralsight.Transactions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Every report and search path on a pre-loaded ledger. Console output is discarded,
+// so the numbers measure finding and formatting the rows, not the terminal.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ReportBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"100", "100000"})
+    public int vendors;
+
+    @Param({"730"})
+    public int spreadDays;
+
+    private Path csv;
+    private Ledger ledger;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(rows, vendors, spreadDays);
+        ledger = new Ledger(csv.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ledger.close();
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void displayMonthToDate() {
+        ledger.displayMonthToDate();
+    }
+
+    @Benchmark
+    public void displayPreviousMonth() {
+        ledger.displayPreviousMonth();
+    }
+
+    @Benchmark
+    public void displayYearToDate() {
+        ledger.displayYearToDate();
+    }
+
+    @Benchmark
+    public void displayDeposits() {
+        ledger.displayDeposits();
+    }
+
+    @Benchmark
+    public void displayPayments() {
+        ledger.displayPayments();
+    }
+
+    // Date range plus a vendor keyword, the most common way the custom search is used
+    @Benchmark
+    public void customSearch() {
+        String from = java.time.LocalDate.now().minusDays(90).toString();
+        ledger.customSearch(from, "", "", "market", null);
+    }
+
+    // First page of the newest transactions, formatted into a sink that keeps nothing
+    @Benchmark
+    public int firstPageNewestFirst() throws IOException {
+        return ledger.displayAllTransactions(DISCARD, Page.first(50));
+    }
+
+    // Every payment formatted through the sink, without the console in the way
+    @Benchmark
+    public int paymentsToSink() throws IOException {
+        return ledger.displayPayments(DISCARD, Page.all());
+    }
+
+    private static final ReportSink DISCARD = new ReportSink() {
+        @Override
+        public void writeLine(CharSequence line) {
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    // Selective keyword (a handful of vendors) and a broad one (a third of all vendors)
+    @Benchmark
+    public List<Transactions> searchByVendorSelective() {
+        return ledger.searchByVendor(SyntheticLedger.vendorName(vendors / 2).substring(7, 11));
+    }
+
+    @Benchmark
+    public List<Transactions> searchByVendorBroad() {
+        return ledger.searchByVendor("market");
+    }
+}
@@ -0,0 +1,88 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.GroupCommitPolicy;
+import com.pluralsight.Ledger;
+import com.pluralsight.LedgerServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Load generator for LedgerServer: many clients appending, querying and reading totals over HTTP.
+// Runs every benchmark twice, for requests per second (Throughput) and for the latency distribution
+// (SampleTime, whose report includes p0.99). Raise the client count with -t (e.g. -t 1, -t 16, -t 64)
+// to see concurrent appends share group commits.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ServerBenchmark {
+
+    private Path csv;
+    private Ledger ledger;
+    private LedgerServer server;
+    private PrintStream console;
+    private HttpClient client;
+    private HttpRequest append;
+    private HttpRequest query;
+    private HttpRequest aggregates;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(200_000, 1000, 365);
+        ledger = new Ledger(csv.toString(), new GroupCommitPolicy(1024, 0, true));
+        server = new LedgerServer(ledger, 0);
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        append = HttpRequest.newBuilder(URI.create(base + "/transactions"))
+                .POST(HttpRequest.BodyPublishers.ofString("2025-06-01|12:30:00|Load test|Market 42| $-12.34\n"))
+                .build();
+        query = HttpRequest.newBuilder(URI.create(base + "/transactions?vendor=market&type=deposits&order=newest&limit=50"))
+                .build();
+        aggregates = HttpRequest.newBuilder(URI.create(base + "/aggregates?month=2025-06")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+        ledger.close();
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    // Returns once the row is synced to the log
+    @Benchmark
+    public String appendOne() throws IOException, InterruptedException {
+        return send(append);
+    }
+
+    // The 50 newest deposits for a vendor keyword, as NDJSON
+    @Benchmark
+    public String queryPage() throws IOException, InterruptedException {
+        return send(query);
+    }
+
+    @Benchmark
+    public String monthTotals() throws IOException, InterruptedException {
+        return send(aggregates);
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,50 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Ledger;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Cold start versus ledger size, with and without a snapshot file next to the CSV.
+// Each iteration constructs a fresh Ledger, which is everything APP does before showing the home screen.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class StartupBenchmark {
+
+    @Param({"100000", "1000000", "2000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean snapshot;
+
+    private Path csv;
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        console = BenchmarkFiles.silenceConsole();
+        csv = BenchmarkFiles.generate(rows, 1000, 730);
+        if (snapshot) {
+            new Ledger(csv.toString()).writeSnapshot();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFiles.delete(csv);
+        System.setOut(console);
+    }
+
+    // Not closed: nothing was appended, and close() would write a snapshot into the no-snapshot runs
+    @Benchmark
+    public Ledger startup() {
+        return new Ledger(csv.toString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.pluralsight.benchmarks;
+
+import com.pluralsight.Transactions;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+// Generates realistic-looking ledger files for the benchmarks.
+// Rows are in date order and end today, so the month/year reports always have data to find.
+public class SyntheticLedger {
+
+    private static final String[] DESCRIPTIONS = {"Groceries", "Rent", "Pay Day", "Gas Bill", "Electric Bill",
+            "Phone Bill", "Coffee", "Dinner", "Refund", "Transfer", "Insurance", "Subscription"};
+
+    private final int rows;
+    private final int vendorCount;  // Number of distinct vendors
+    private final int spreadDays;   // Rows are spread over this many days, ending today
+    private final long seed;
+
+    public SyntheticLedger(int rows, int vendorCount, int spreadDays, long seed) {
+        this.rows = rows;
+        this.vendorCount = vendorCount;
+        this.spreadDays = spreadDays;
+        this.seed = seed;
+    }
+
+    // === WRITE ===
+    // Writes the ledger as pipe-delimited CSV in the same format Ledger itself writes
+    public Path writeCsv(Path file) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                out.write(row(random, i).toString());
+                out.newLine();
+            }
+        }
+        return file;
+    }
+
+    // One generated transaction; row i of `rows` falls proportionally through the date spread
+    public Transactions row(Random random, int i) {
+        LocalDate date = LocalDate.now().minusDays(spreadDays - 1 - (long) i * spreadDays / Math.max(rows, 1));
+        int second = random.nextInt(86_400);
+        String time = String.format("%02d:%02d:%02d", second / 3600, second / 60 % 60, second % 60);
+        String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+        String vendor = vendorName(random.nextInt(vendorCount));
+        long cents = random.nextInt(200_000) - 120_000; // Mostly payments, some deposits
+        return Transactions.ofCents(date.toString(), time, description, vendor, cents);
+    }
+
+    // Vendor names share common words, so substring searches have realistic partial matches
+    public static String vendorName(int id) {
+        return "Vendor " + Integer.toString(id * 7919, 36) + (id % 3 == 0 ? " Market" : " Services");
+    }
+}